@@ -27,6 +27,7 @@ import net.sf.sitemonitoring.service.CheckResultService;
 import net.sf.sitemonitoring.service.CheckService;
 import net.sf.sitemonitoring.service.ConfigurationService;
 import net.sf.sitemonitoring.service.PageService;
+import net.sf.sitemonitoring.service.check.PageCondition;
 
 @Getter
 @Setter
@@ -193,7 +194,7 @@ public class CheckController implements Serializable {
 
 	public void save() {
 		log.debug("save check: " + check.getType());
-		if ((check.getCondition() != null && !check.getCondition().isEmpty()) || check.isCheckBrokenLinks()) {
+		if (!PageCondition.of(check).isEmpty() || check.isCheckBrokenLinks()) {
 			check.setHttpMethod(HttpMethod.GET);
 		} else {
 			check.setHttpMethod(HttpMethod.HEAD);
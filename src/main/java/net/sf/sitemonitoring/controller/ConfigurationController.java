@@ -11,6 +11,8 @@ import net.sf.sitemonitoring.annotation.ScopeView;
 import net.sf.sitemonitoring.entity.Configuration;
 import net.sf.sitemonitoring.service.ConfigurationService;
 import net.sf.sitemonitoring.service.SendEmailService;
+import net.sf.sitemonitoring.service.check.CheckRunExecutor;
+import net.sf.sitemonitoring.service.check.HttpClientPool;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -30,6 +32,12 @@ public class ConfigurationController implements Serializable {
 	@Autowired
 	private SendEmailService sendEmailService;
 
+	@Autowired
+	private HttpClientPool httpClientPool;
+
+	@Autowired
+	private CheckRunExecutor checkRunExecutor;
+
 	private String emailTestResults;
 
 	@PostConstruct
@@ -43,6 +51,14 @@ public class ConfigurationController implements Serializable {
 		FacesContext.getCurrentInstance().addMessage(null, new FacesMessage("Configuration saved"));
 	}
 
+	public String getHttpClientPoolStatistics() {
+		return httpClientPool.getStatistics();
+	}
+
+	public String getCheckRunStatistics() {
+		return checkRunExecutor.getStatistics();
+	}
+
 	public void testSendEmails(String emailFrom, String adminEmail, String emailServerHost, String emailServerPort, String emailServerUsername, String emailServerPassword) {
 		emailTestResults = "<h2>Email test results:</h2>\n\n" + sendEmailService.sendEmailTest(emailFrom, adminEmail, emailServerHost, emailServerPort, emailServerUsername, emailServerPassword);
 	}
@@ -29,7 +29,7 @@ public class Check implements Serializable {
 	}
 
 	public enum CheckCondition {
-		CONTAINS, DOESNT_CONTAIN
+		CONTAINS, DOESNT_CONTAIN, MATCHES, DOESNT_MATCH
 	}
 
 	public enum CheckState {
@@ -81,6 +81,13 @@ public class Check implements Serializable {
 	@Column(name = "condition_value", length = 500)
 	private String condition;
 
+	/**
+	 * More conditions of single page, sitemap and spider check, one per line
+	 * (see PageCondition), all of them are evaluated in one pass
+	 */
+	@Column(name = "additional_conditions", length = 2000)
+	private String additionalConditions;
+
 	@Column(name = "text_result", length = 4000)
 	private String textResult;
 
@@ -157,6 +164,30 @@ public class Check implements Serializable {
 	@Column(name="follow_outbound_broken_links")
 	private Boolean followOutboundBrokenLinks;
 
+	/**
+	 * Used only in spider, null = unlimited
+	 */
+	@Column(name = "spider_max_depth")
+	private Integer spiderMaxDepth;
+
+	@Column(name = "spider_max_pages")
+	private Integer spiderMaxPages;
+
+	/**
+	 * Used in sitemap and spider, true = URLs, which differ only in order of
+	 * query parameters, are the same page
+	 */
+	@Column(name = "sort_query_parameters")
+	private Boolean sortQueryParameters;
+
+	/**
+	 * Used in sitemap, true = only URLs with changed lastmod and a rotating
+	 * sample of the other URLs are checked, all URLs are checked in every N-th
+	 * run
+	 */
+	@Column(name = "incremental_sitemap")
+	private Boolean incrementalSitemap;
+
 	// TODO Change to FetchType.LAZY
 	@OneToOne(fetch = FetchType.EAGER, cascade = { CascadeType.ALL })
 	@JoinColumn(name = "credentials_id")
@@ -186,6 +217,20 @@ public class Check implements Serializable {
 	@Transient
 	private boolean storeWebpage;
 
+	/**
+	 * Used only in spider: links found on the page, they're set together with
+	 * webPage
+	 */
+	@Transient
+	private List<String> links;
+
+	/**
+	 * Used only in sitemap and spider: page is requested with validators
+	 * (ETag, Last-Modified) of the last successful check
+	 */
+	@Transient
+	private boolean conditionalRequest;
+
 	/**
 	 * Used in HTTP request, retrieved from Configuration
 	 */
@@ -55,4 +55,11 @@ public class CheckResult implements Serializable {
 	@Column(name = "response_time", nullable = false)
 	private long responseTime;
 
+	/**
+	 * How late the check started (in milliseconds), null for results, which
+	 * were saved before it was recorded
+	 */
+	@Column(name = "lag_millis")
+	private Long lagMillis;
+
 }
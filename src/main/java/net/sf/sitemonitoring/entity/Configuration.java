@@ -48,6 +48,13 @@ public class Configuration implements Serializable {
 	@Column(name = "too_long_running_check_min", nullable = false)
 	private int tooLongRunningCheckMinutes;
 
+	/**
+	 * checks with the same interval are spread evenly over it instead of
+	 * starting at the same time
+	 */
+	@Column(name = "spread_checks")
+	private Boolean spreadChecks;
+
 	@Column(name = "monitoring_version")
 	private String monitoringVersion;
 
@@ -66,6 +73,142 @@ public class Configuration implements Serializable {
 	@Column(name = "http_proxy_password")
 	private String httpProxyPassword;
 
+	/*
+	 * check runs (quick checks and sitemap / spider checks have separate
+	 * pools)
+	 */
+
+	@Column(name = "page_run_threads")
+	private Integer pageRunThreads;
+
+	@Column(name = "crawl_run_threads")
+	private Integer crawlRunThreads;
+
+	@Column(name = "run_queue_size")
+	private Integer runQueueSize;
+
+	/**
+	 * run, which waited in the queue longer, is dropped (0 means no limit)
+	 */
+	@Column(name = "max_run_queue_wait_sec")
+	private Integer maxRunQueueWaitSeconds;
+
+	/*
+	 * check execution (number of worker threads per check type)
+	 */
+
+	@Column(name = "single_page_check_threads")
+	private Integer singlePageCheckThreads;
+
+	@Column(name = "sitemap_check_threads")
+	private Integer sitemapCheckThreads;
+
+	@Column(name = "spider_check_threads")
+	private Integer spiderCheckThreads;
+
+	@Column(name = "xml_check_threads")
+	private Integer xmlCheckThreads;
+
+	@Column(name = "json_check_threads")
+	private Integer jsonCheckThreads;
+
+	@Column(name = "xsd_check_threads")
+	private Integer xsdCheckThreads;
+
+	@Column(name = "link_check_threads")
+	private Integer linkCheckThreads;
+
+	@Column(name = "link_check_threads_per_host")
+	private Integer linkCheckThreadsPerHost;
+
+	@Column(name = "sitemap_concurrency")
+	private Integer sitemapConcurrency;
+
+	@Column(name = "sitemap_concurrency_per_host")
+	private Integer sitemapConcurrencyPerHost;
+
+	@Column(name = "sitemap_index_concurrency")
+	private Integer sitemapIndexConcurrency;
+
+	@Column(name = "spider_concurrency")
+	private Integer spiderConcurrency;
+
+	/*
+	 * spill visited URLs and spider frontier to disk
+	 */
+
+	@Column(name = "spill_to_disk")
+	private Boolean spillToDisk;
+
+	@Column(name = "spill_visited_urls_threshold")
+	private Integer spillVisitedUrlsThreshold;
+
+	@Column(name = "spill_frontier_threshold")
+	private Integer spillFrontierThreshold;
+
+	/*
+	 * response body
+	 */
+
+	@Column(name = "max_body_size_kb")
+	private Integer maxBodySizeKb;
+
+	/**
+	 * XML check evaluates simple paths (/a/b/c, /a/b/@c) without DOM
+	 */
+	@Column(name = "xml_streaming")
+	private Boolean xmlStreaming;
+
+	/**
+	 * JSON check evaluates simple paths ($.a.b, $.a[0].b) while JSON is
+	 * downloaded
+	 */
+	@Column(name = "json_streaming")
+	private Boolean jsonStreaming;
+
+	/**
+	 * pages of sitemap and spider checks are requested with ETag /
+	 * Last-Modified of the last successful check
+	 */
+	@Column(name = "conditional_requests")
+	private Boolean conditionalRequests;
+
+	/**
+	 * incremental sitemap check checks all URLs in every N-th run
+	 */
+	@Column(name = "sitemap_full_sweep_runs")
+	private Integer sitemapFullSweepRuns;
+
+	/**
+	 * how many percent of unchanged URLs incremental sitemap check checks in
+	 * every run
+	 */
+	@Column(name = "sitemap_sample_percent")
+	private Integer sitemapSamplePercent;
+
+	/*
+	 * shared HTTP connection pool
+	 */
+
+	@Column(name = "http_max_conn_total")
+	private Integer httpMaxConnectionsTotal;
+
+	@Column(name = "http_max_conn_per_route")
+	private Integer httpMaxConnectionsPerRoute;
+
+	@Column(name = "http_idle_conn_seconds")
+	private Integer httpIdleConnectionSeconds;
+
+	/*
+	 * non-blocking HTTP engine
+	 */
+
+	@Column(name = "async_http_engine")
+	private Boolean asyncHttpEngine;
+
+	@Column(name = "async_http_max_requests")
+	private Integer asyncHttpMaxRequests;
+
 	/*
 	 * send email functionality
 	 */
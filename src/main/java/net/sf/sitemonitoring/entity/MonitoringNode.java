@@ -0,0 +1,33 @@
+package net.sf.sitemonitoring.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Monitoring node in cluster mode. Node is alive while it updates its
+ * heartbeat, shards of checks are divided among alive nodes.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "monit_node")
+public class MonitoringNode implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length = 100)
+	private String id;
+
+	@Column(nullable = false)
+	private Date heartbeat;
+
+}
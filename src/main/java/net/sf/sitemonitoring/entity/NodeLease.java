@@ -0,0 +1,35 @@
+package net.sf.sitemonitoring.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Lease of one shard of checks (checks, whose id modulo number of shards is
+ * the shard). Only the node, which holds the lease, runs the checks. Lease is
+ * free when it has no node or when it expired.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "monit_node_lease")
+public class NodeLease implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int shard;
+
+	@Column(name = "node_id", length = 100)
+	private String nodeId;
+
+	private Date expires;
+
+}
@@ -0,0 +1,64 @@
+package net.sf.sitemonitoring.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import org.hibernate.annotations.Type;
+
+/**
+ * HTTP validators (ETag, Last-Modified) of page checked by sitemap or spider
+ * check. Page is stored only when it passed the check, so when the server
+ * responds "304 Not Modified", the page is still OK and it doesn't have to be
+ * downloaded again.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "monit_page_validator", indexes = @Index(name = "idx_page_validator_url", columnList = "check_id, url"))
+public class PageValidator implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue
+	private int id;
+
+	@Column(name = "check_id", nullable = false)
+	private int checkId;
+
+	/**
+	 * Canonical URL of the page
+	 */
+	@Column(nullable = false, length = 2000)
+	private String url;
+
+	@Column(length = 500)
+	private String etag;
+
+	@Column(name = "last_modified", length = 100)
+	private String lastModified;
+
+	/**
+	 * Links found on the page separated by new line, null if they weren't
+	 * needed
+	 */
+	@Lob
+	@Type(type = "org.hibernate.type.TextType")
+	@Column(length = Integer.MAX_VALUE)
+	private String links;
+
+	@Column(name = "verified_date", nullable = false)
+	private Date verifiedDate;
+
+}
@@ -0,0 +1,18 @@
+package net.sf.sitemonitoring.event;
+
+public class CheckDeletedEvent {
+
+	private Integer checkId;
+
+	/**
+	 * @param checkId
+	 *            id of deleted check, null if all checks were deleted
+	 */
+	public CheckDeletedEvent(Integer checkId) {
+		this.checkId = checkId;
+	}
+
+	public Integer getCheckId() {
+		return checkId;
+	}
+}
@@ -0,0 +1,14 @@
+package net.sf.sitemonitoring.event;
+
+public class CheckFinishedEvent {
+
+	private int checkId;
+
+	public CheckFinishedEvent(int checkId) {
+		this.checkId = checkId;
+	}
+
+	public int getCheckId() {
+		return checkId;
+	}
+}
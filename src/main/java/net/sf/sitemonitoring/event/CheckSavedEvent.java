@@ -0,0 +1,21 @@
+package net.sf.sitemonitoring.event;
+
+public class CheckSavedEvent {
+
+	private int checkId;
+
+	private long fireTime;
+
+	public CheckSavedEvent(int checkId, long fireTime) {
+		this.checkId = checkId;
+		this.fireTime = fireTime;
+	}
+
+	public int getCheckId() {
+		return checkId;
+	}
+
+	public long getFireTime() {
+		return fireTime;
+	}
+}
@@ -0,0 +1,14 @@
+package net.sf.sitemonitoring.event;
+
+public class CheckStartNowEvent {
+
+	private int checkId;
+
+	public CheckStartNowEvent(int checkId) {
+		this.checkId = checkId;
+	}
+
+	public int getCheckId() {
+		return checkId;
+	}
+}
@@ -0,0 +1,20 @@
+package net.sf.sitemonitoring.event;
+
+import java.util.Set;
+
+public class ClusterHeartbeatEvent {
+
+	private Set<Integer> shards;
+
+	/**
+	 * @param shards
+	 *            shards of checks, which this node runs now
+	 */
+	public ClusterHeartbeatEvent(Set<Integer> shards) {
+		this.shards = shards;
+	}
+
+	public Set<Integer> getShards() {
+		return shards;
+	}
+}
@@ -1,5 +0,0 @@
-@XmlSchema(namespace = "http://www.sitemaps.org/schemas/sitemap/0.9", elementFormDefault = XmlNsForm.QUALIFIED)
-package net.sf.sitemonitoring.jaxb.sitemapindex;
-
-import javax.xml.bind.annotation.*;
-
@@ -17,6 +17,8 @@ public class CheckResultDto {
 	private Date finishDate;
 
 	private long responseTime;
+
+	private Long lagMillis;
 	
 	public String getDateInterval() {
 		if (startDate == null && finishDate == null) {
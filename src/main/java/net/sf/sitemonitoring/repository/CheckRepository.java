@@ -18,6 +18,12 @@ public interface CheckRepository extends JpaRepository<Check, Integer> {
 	@Query("select c from Check c where c.id = ?1")
 	Check findOne(int id);
 
+	/**
+	 * @return Id, scheduled start date and scheduled next date of all checks
+	 */
+	@Query("select c.id, c.scheduledStartDate, c.scheduledNextDate from Check c")
+	List<Object[]> findSchedules();
+
 	@Modifying(clearAutomatically = true)
 	@Query("update Check set startDate = current_timestamp, scheduledNextDate = ?1, checkState = 'RUNNING' where id = ?2")
 	void startCheck(Date scheduledNextDate, int checkId);
@@ -43,6 +49,17 @@ public interface CheckRepository extends JpaRepository<Check, Integer> {
 	@Query("update Check c set c.checkState = 'NOT_RUNNING', c.scheduledNextDate = null where c.checkState = 'RUNNING'")
 	void resetAllChecks();
 
+	/**
+	 * Resets running checks, whose shard isn't leased by another registered
+	 * node (the lease is free, expired, or it's lease of this node before
+	 * restart), so nothing runs them anymore.
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	@Modifying
+	@Query("update Check c set c.checkState = 'NOT_RUNNING', c.scheduledNextDate = null where c.checkState = 'RUNNING' and not exists (select l.shard from NodeLease l"
+			+ " where l.shard = mod(c.id, ?1) and l.nodeId <> ?2 and l.expires > current_timestamp and exists (select n.id from MonitoringNode n where n.id = l.nodeId))")
+	int resetOrphanedChecks(int shards, String nodeId);
+
 	@Transactional(propagation = Propagation.REQUIRES_NEW)
 	@Modifying
 	@Query("update Check c set c.lastSentEmail = current_timestamp, currentErrorCount = 0 where c.id = ?1")
@@ -0,0 +1,22 @@
+package net.sf.sitemonitoring.repository;
+
+import java.util.Date;
+
+import net.sf.sitemonitoring.entity.MonitoringNode;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface MonitoringNodeRepository extends JpaRepository<MonitoringNode, String> {
+
+	@Query("select count(n) from MonitoringNode n where n.heartbeat > ?1")
+	long countAlive(Date since);
+
+	@Transactional
+	@Modifying
+	@Query("delete from MonitoringNode n where n.heartbeat < ?1")
+	void deleteDead(Date before);
+
+}
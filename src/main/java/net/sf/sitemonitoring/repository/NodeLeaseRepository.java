@@ -0,0 +1,58 @@
+package net.sf.sitemonitoring.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import net.sf.sitemonitoring.entity.NodeLease;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Every update of leases is a single statement in its own transaction, so
+ * nodes cannot claim the same shard. Times are taken from the database clock
+ * (see {@link #findDatabaseTime()}), so clocks of nodes don't matter.
+ */
+public interface NodeLeaseRepository extends JpaRepository<NodeLease, Integer> {
+
+	@Query("select l.shard from NodeLease l")
+	List<Integer> findAllShards();
+
+	/**
+	 * @return Current time of the database, null if there are no leases yet
+	 */
+	@Query("select current_timestamp from NodeLease l where l.shard = 0")
+	Date findDatabaseTime();
+
+	@Query("select l.shard from NodeLease l where l.nodeId = ?1 order by l.shard")
+	List<Integer> findShards(String nodeId);
+
+	@Query("select l.shard from NodeLease l where l.nodeId is null or l.expires < ?1 order by l.shard")
+	List<Integer> findFree(Date now);
+
+	/**
+	 * Creates free lease, it fails if it already exists.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "insert into monit_node_lease (shard) values (?1)", nativeQuery = true)
+	void create(int shard);
+
+	@Transactional
+	@Modifying
+	@Query("update NodeLease l set l.expires = ?2 where l.nodeId = ?1")
+	int renew(String nodeId, Date expires);
+
+	@Transactional
+	@Modifying
+	@Query("update NodeLease l set l.nodeId = ?2, l.expires = ?3 where l.shard = ?1 and (l.nodeId is null or l.expires < ?4)")
+	int claim(int shard, String nodeId, Date expires, Date now);
+
+	@Transactional
+	@Modifying
+	@Query("update NodeLease l set l.nodeId = null, l.expires = null where l.shard = ?1 and l.nodeId = ?2")
+	int release(int shard, String nodeId);
+
+}
@@ -0,0 +1,24 @@
+package net.sf.sitemonitoring.repository;
+
+import java.util.List;
+
+import net.sf.sitemonitoring.entity.PageValidator;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface PageValidatorRepository extends JpaRepository<PageValidator, Integer> {
+
+	@Query("select p from PageValidator p where p.checkId = ?1 and p.url = ?2")
+	List<PageValidator> find(int checkId, String url);
+
+	@Modifying
+	@Query("delete from PageValidator p where p.checkId = ?1 and p.url = ?2")
+	void delete(int checkId, String url);
+
+	@Modifying
+	@Query("delete from PageValidator p where p.checkId = ?1")
+	void deleteByCheckId(int checkId);
+
+}
@@ -163,6 +163,7 @@ public class CheckResultService {
 		checkResultDto.setStartDate(checkResult.getStartTime());
 		checkResultDto.setFinishDate(checkResult.getFinishTime());
 		checkResultDto.setResponseTime(checkResult.getResponseTime());
+		checkResultDto.setLagMillis(checkResult.getLagMillis());
 		return checkResultDto;
 	}
 
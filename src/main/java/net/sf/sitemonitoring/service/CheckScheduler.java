@@ -0,0 +1,156 @@
+package net.sf.sitemonitoring.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fires checks at their next fire time. Fire times are kept in memory in a
+ * priority queue ordered by time and one thread sleeps until the first of
+ * them, so nothing is polled. Entries of rescheduled or cancelled checks are
+ * left in the queue and skipped when they come out.
+ */
+@Slf4j
+public class CheckScheduler {
+
+	private static class Entry {
+
+		private final int checkId;
+
+		private final long fireTime;
+
+		private Entry(int checkId, long fireTime) {
+			this.checkId = checkId;
+			this.fireTime = fireTime;
+		}
+	}
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.<Entry> comparingLong(entry -> entry.fireTime).thenComparingInt(entry -> entry.checkId));
+
+	/**
+	 * Current entry of every scheduled check
+	 */
+	private final Map<Integer, Entry> entries = new HashMap<>();
+
+	/**
+	 * Called from scheduler thread, when check should start
+	 */
+	public interface FireListener {
+
+		/**
+		 * @param fireTime
+		 *            time, at which the check was scheduled to start
+		 */
+		void fire(int checkId, long fireTime);
+	}
+
+	private final FireListener fire;
+
+	private Thread thread;
+
+	/**
+	 * @param fire
+	 *            called when check should start. Check isn't scheduled again
+	 *            until it's rescheduled.
+	 */
+	public CheckScheduler(FireListener fire) {
+		this.fire = fire;
+	}
+
+	public synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this::run, "check-scheduler");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	public synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	/**
+	 * Schedules check (replaces its previous fire time). Fire time in the past
+	 * means now.
+	 */
+	public synchronized void schedule(int checkId, long fireTime) {
+		Entry entry = new Entry(checkId, fireTime);
+		entries.put(checkId, entry);
+		queue.add(entry);
+		if (queue.size() > 2 * entries.size() + 64) {
+			queue.clear();
+			queue.addAll(entries.values());
+		}
+		if (queue.peek() == entry) {
+			notifyAll();
+		}
+	}
+
+	public synchronized void cancel(int checkId) {
+		entries.remove(checkId);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		queue.clear();
+	}
+
+	/**
+	 * @return Fire time of check, null if it isn't scheduled.
+	 */
+	public synchronized Long getFireTime(int checkId) {
+		Entry entry = entries.get(checkId);
+		return entry == null ? null : entry.fireTime;
+	}
+
+	/**
+	 * @return Number of scheduled checks
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private void run() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Entry entry = take();
+				try {
+					fire.fire(entry.checkId, entry.fireTime);
+				} catch (RuntimeException e) {
+					log.error("cannot start check " + entry.checkId, e);
+				}
+			}
+		} catch (InterruptedException e) {
+			log.debug("check scheduler stopped");
+		}
+	}
+
+	/**
+	 * Waits until fire time of the first check and removes it.
+	 */
+	private synchronized Entry take() throws InterruptedException {
+		while (true) {
+			Entry first = queue.peek();
+			if (first == null) {
+				wait();
+			} else if (entries.get(first.checkId) != first) {
+				queue.poll();
+			} else {
+				long delay = first.fireTime - System.currentTimeMillis();
+				if (delay <= 0) {
+					queue.poll();
+					entries.remove(first.checkId);
+					return first;
+				}
+				wait(delay);
+			}
+		}
+	}
+
+}
@@ -12,6 +12,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.google.common.eventbus.EventBus;
 
@@ -19,8 +21,13 @@ import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.IntervalType;
 import net.sf.sitemonitoring.event.AbortCheckEvent;
+import net.sf.sitemonitoring.event.CheckDeletedEvent;
+import net.sf.sitemonitoring.event.CheckFinishedEvent;
+import net.sf.sitemonitoring.event.CheckSavedEvent;
+import net.sf.sitemonitoring.event.CheckStartNowEvent;
 import net.sf.sitemonitoring.repository.CheckRepository;
 import net.sf.sitemonitoring.repository.CredentialsRepository;
+import net.sf.sitemonitoring.repository.PageValidatorRepository;
 
 @Slf4j
 @Component
@@ -33,18 +40,30 @@ public class CheckService {
 	@Autowired
 	private CredentialsRepository credentialsRepository;
 
+	@Autowired
+	private PageValidatorRepository pageValidatorRepository;
+
 	@Autowired
 	private EventBus eventBus;
+
+	@Autowired
+	private ClusterService clusterService;
 	
 	 @PersistenceContext
 	 private EntityManager entityManager;
 
 	/**
 	 * When this bean is created (during server startup) set
-	 * CheckState.NOT_RUNNING to all checks
+	 * CheckState.NOT_RUNNING to all checks. In cluster mode only checks, which
+	 * no other node can be running, are reset.
 	 */
 	@PostConstruct
 	public void resetAllChecks() {
+		if (clusterService != null && clusterService.isEnabled()) {
+			int reset = checkRepository.resetOrphanedChecks(clusterService.getShards(), clusterService.getNodeId());
+			log.info("reset " + reset + " running checks without live node");
+			return;
+		}
 		checkRepository.resetAllChecks();
 	}
 
@@ -71,10 +90,16 @@ public class CheckService {
 				check.setId(0);
 				entityManager.persist(check);
 				entityManager.flush();
+				post(new CheckSavedEvent(check.getId(), SchedulingService.getFireTime(check)));
 				entityManager.clear();
 			}
 		} else {
-			checkRepository.save(check);
+			if (check.getId() != 0) {
+				// pages must be checked again with new settings
+				pageValidatorRepository.deleteByCheckId(check.getId());
+			}
+			Check saved = checkRepository.save(check);
+			post(new CheckSavedEvent(saved.getId(), SchedulingService.getFireTime(saved)));
 		}
 	}
 	
@@ -100,7 +125,9 @@ public class CheckService {
 
 	public void delete(int id) {
 		abort(id, "deleted");
+		pageValidatorRepository.deleteByCheckId(id);
 		checkRepository.deleteById(id);
+		post(new CheckDeletedEvent(id));
 	}
 
 	@Transactional(propagation = Propagation.REQUIRES_NEW)
@@ -112,10 +139,27 @@ public class CheckService {
 	@Transactional(propagation = Propagation.REQUIRES_NEW)
 	public void finishCheck(Check check) {
 		checkRepository.finishCheck(check.getId());
+		post(new CheckFinishedEvent(check.getId()));
+	}
+
+	/**
+	 * Run of the check was dropped before it started, it will run again at
+	 * its next scheduled time.
+	 */
+	public void dropCheck(Check check) {
+		post(new CheckFinishedEvent(check.getId()));
 	}
 
 	public void startNow(int checkId) {
 		checkRepository.startCheck(checkId);
+		post(new CheckStartNowEvent(checkId));
+	}
+
+	/**
+	 * @return Id, scheduled start date and scheduled next date of all checks
+	 */
+	public List<Object[]> findSchedules() {
+		return checkRepository.findSchedules();
 	}
 
 	public List<Check> findAll() {
@@ -151,7 +195,30 @@ public class CheckService {
 	}
 
 	public void deleteAll() {
+		pageValidatorRepository.deleteAll();
 		checkRepository.deleteAll();
+		post(new CheckDeletedEvent(null));
+	}
+
+	/**
+	 * Notifies scheduler about change of checks. Inside of a transaction the
+	 * event is posted after commit, so the scheduler doesn't read the check
+	 * before its change is visible.
+	 */
+	private void post(final Object event) {
+		if (eventBus == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					eventBus.post(event);
+				}
+			});
+		} else {
+			eventBus.post(event);
+		}
 	}
 
 }
@@ -0,0 +1,264 @@
+package net.sf.sitemonitoring.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.google.common.eventbus.EventBus;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.MonitoringNode;
+import net.sf.sitemonitoring.event.ClusterHeartbeatEvent;
+import net.sf.sitemonitoring.repository.MonitoringNodeRepository;
+import net.sf.sitemonitoring.repository.NodeLeaseRepository;
+
+/**
+ * Cluster mode, in which several nodes monitor checks of one database. Checks
+ * are divided to shards (check id modulo number of shards) and every node
+ * holds leases of its shards in monit_node_lease. Node updates its heartbeat
+ * and renews its leases periodically. It claims free or expired leases up to
+ * its fair share (shards / alive nodes) and releases leases above it, so
+ * shards are rebalanced when a node joins or dies. Lease is claimed by one
+ * conditional update, so two nodes never hold the same shard, and node runs
+ * checks of its shards only for half of the lease time after it renewed it
+ * (measured by its local monotonic clock). Heartbeats and lease expiration are
+ * computed from the database clock, so clocks of nodes may differ. All nodes
+ * must have the same number of shards and lease time.
+ */
+@Slf4j
+@Service
+public class ClusterService {
+
+	@Value("${sitemonitoring.cluster.enabled:false}")
+	private boolean enabled;
+
+	/**
+	 * Unique id of this node, random if it's not set
+	 */
+	@Value("${sitemonitoring.cluster.node-id:}")
+	private String nodeId;
+
+	@Value("${sitemonitoring.cluster.shards:64}")
+	private int shards;
+
+	@Value("${sitemonitoring.cluster.lease-seconds:30}")
+	private int leaseSeconds;
+
+	@Autowired
+	private MonitoringNodeRepository monitoringNodeRepository;
+
+	@Autowired
+	private NodeLeaseRepository nodeLeaseRepository;
+
+	@Autowired
+	private EventBus eventBus;
+
+	/**
+	 * Shifts local and database time of this node, used by tests
+	 */
+	private LongSupplier timeShift = () -> 0;
+
+	private volatile Set<Integer> ownedShards = Collections.emptySet();
+
+	/**
+	 * Leases of owned shards cannot expire before this local time (see
+	 * {@link #localMillis()})
+	 */
+	private volatile long validUntil;
+
+	@PostConstruct
+	public void init() {
+		if (nodeId == null || nodeId.isEmpty()) {
+			nodeId = UUID.randomUUID().toString();
+		}
+		if (enabled) {
+			log.info("cluster mode, node " + nodeId + ", " + shards + " shards");
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public int getShards() {
+		return shards;
+	}
+
+	public int getShard(int checkId) {
+		return Math.floorMod(checkId, shards);
+	}
+
+	/**
+	 * @return true if this node runs the check (always true if cluster mode
+	 *         is disabled)
+	 */
+	public boolean isOwned(int checkId) {
+		if (!enabled) {
+			return true;
+		}
+		return localMillis() < validUntil && ownedShards.contains(getShard(checkId));
+	}
+
+	/**
+	 * @return Monotonic local time in milliseconds, it's used only to measure
+	 *         elapsed time
+	 */
+	private long localMillis() {
+		return System.nanoTime() / 1000000 + timeShift.getAsLong();
+	}
+
+	/**
+	 * @return Shards, which this node runs now
+	 */
+	public Set<Integer> getOwnedShards() {
+		return localMillis() < validUntil ? ownedShards : Collections.<Integer> emptySet();
+	}
+
+	/**
+	 * Updates heartbeat of this node, renews its leases and rebalances
+	 * shards. Then it notifies scheduler.
+	 */
+	@Scheduled(fixedDelayString = "${sitemonitoring.cluster.heartbeat-millis:10000}")
+	public synchronized void heartbeat() {
+		if (!enabled) {
+			return;
+		}
+		// before the leases are renewed, so the local validity is never longer
+		// than the lease
+		long start = localMillis();
+		long leaseMillis = leaseSeconds * 1000L;
+		try {
+			createLeases();
+			long now = nodeLeaseRepository.findDatabaseTime().getTime() + timeShift.getAsLong();
+			Date expires = new Date(now + leaseMillis);
+			MonitoringNode node = new MonitoringNode();
+			node.setId(nodeId);
+			node.setHeartbeat(new Date(now));
+			monitoringNodeRepository.save(node);
+			monitoringNodeRepository.deleteDead(new Date(now - 10 * leaseMillis));
+
+			nodeLeaseRepository.renew(nodeId, expires);
+			long aliveNodes = Math.max(1, monitoringNodeRepository.countAlive(new Date(now - leaseMillis)));
+			int fairShare = (int) ((shards + aliveNodes - 1) / aliveNodes);
+			List<Integer> owned = new ArrayList<>();
+			for (int shard : nodeLeaseRepository.findShards(nodeId)) {
+				if (shard < shards) {
+					owned.add(shard);
+				}
+			}
+			if (owned.size() > fairShare) {
+				List<Integer> released = new ArrayList<>(owned.subList(fairShare, owned.size()));
+				owned.removeAll(released);
+				// stop running checks of the shards before others can claim
+				// them
+				ownedShards = new HashSet<>(owned);
+				for (int shard : released) {
+					nodeLeaseRepository.release(shard, nodeId);
+				}
+				log.info("node " + nodeId + " released shards " + released);
+			} else if (owned.size() < fairShare) {
+				List<Integer> claimed = new ArrayList<>();
+				for (int shard : nodeLeaseRepository.findFree(new Date(now))) {
+					if (owned.size() >= fairShare) {
+						break;
+					}
+					if (shard < shards && nodeLeaseRepository.claim(shard, nodeId, expires, new Date(now)) == 1) {
+						owned.add(shard);
+						claimed.add(shard);
+					}
+				}
+				if (!claimed.isEmpty()) {
+					log.info("node " + nodeId + " claimed shards " + claimed);
+				}
+			}
+			ownedShards = new HashSet<>(owned);
+			validUntil = start + leaseMillis / 2;
+		} catch (RuntimeException e) {
+			log.error("cluster heartbeat of node " + nodeId + " failed", e);
+			return;
+		}
+		if (eventBus != null) {
+			eventBus.post(new ClusterHeartbeatEvent(ownedShards));
+		}
+	}
+
+	private void createLeases() {
+		Set<Integer> existing = new HashSet<>(nodeLeaseRepository.findAllShards());
+		for (int shard = 0; shard < shards; shard++) {
+			if (!existing.contains(shard)) {
+				try {
+					nodeLeaseRepository.create(shard);
+				} catch (DataIntegrityViolationException e) {
+					// created by another node
+				}
+			}
+		}
+	}
+
+	/**
+	 * Releases all leases, so other nodes can take them over immediately.
+	 */
+	@PreDestroy
+	public synchronized void leave() {
+		if (!enabled) {
+			return;
+		}
+		Set<Integer> released = ownedShards;
+		ownedShards = Collections.emptySet();
+		try {
+			for (int shard : released) {
+				nodeLeaseRepository.release(shard, nodeId);
+			}
+			monitoringNodeRepository.deleteById(nodeId);
+		} catch (RuntimeException e) {
+			log.error("node " + nodeId + " cannot leave cluster", e);
+		}
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public void setShards(int shards) {
+		this.shards = shards;
+	}
+
+	public void setLeaseSeconds(int leaseSeconds) {
+		this.leaseSeconds = leaseSeconds;
+	}
+
+	public void setMonitoringNodeRepository(MonitoringNodeRepository monitoringNodeRepository) {
+		this.monitoringNodeRepository = monitoringNodeRepository;
+	}
+
+	public void setNodeLeaseRepository(NodeLeaseRepository nodeLeaseRepository) {
+		this.nodeLeaseRepository = nodeLeaseRepository;
+	}
+
+	void setTimeShift(LongSupplier timeShift) {
+		this.timeShift = timeShift;
+	}
+
+}
@@ -13,6 +13,10 @@ import net.sf.sitemonitoring.entity.Check.HttpMethod;
 import net.sf.sitemonitoring.entity.Check.IntervalType;
 import net.sf.sitemonitoring.entity.Configuration;
 import net.sf.sitemonitoring.repository.CheckRepository;
+import net.sf.sitemonitoring.service.check.AsyncHttpEngine;
+import net.sf.sitemonitoring.service.check.CheckExecutor;
+import net.sf.sitemonitoring.service.check.CheckRunExecutor;
+import net.sf.sitemonitoring.service.check.HttpClientPool;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -46,7 +50,38 @@ public class InitDbService {
         configuration.setSocketTimeout(20000);
         configuration.setConnectionTimeout(20000);
         configuration.setTooLongRunningCheckMinutes(30);
+        configuration.setSpreadChecks(true);
         configuration.setCheckBrokenLinks(false);
+        configuration.setPageRunThreads(CheckRunExecutor.DEFAULT_PAGE_RUN_THREADS);
+        configuration.setCrawlRunThreads(CheckRunExecutor.DEFAULT_CRAWL_RUN_THREADS);
+        configuration.setRunQueueSize(CheckRunExecutor.DEFAULT_RUN_QUEUE_SIZE);
+        configuration.setMaxRunQueueWaitSeconds(CheckRunExecutor.DEFAULT_MAX_RUN_QUEUE_WAIT_SECONDS);
+        configuration.setSinglePageCheckThreads(CheckExecutor.DEFAULT_SINGLE_PAGE_THREADS);
+        configuration.setSitemapCheckThreads(CheckExecutor.DEFAULT_SITEMAP_THREADS);
+        configuration.setSpiderCheckThreads(CheckExecutor.DEFAULT_SPIDER_THREADS);
+        configuration.setXmlCheckThreads(CheckExecutor.DEFAULT_XML_THREADS);
+        configuration.setJsonCheckThreads(CheckExecutor.DEFAULT_JSON_THREADS);
+        configuration.setXsdCheckThreads(CheckExecutor.DEFAULT_XSD_THREADS);
+        configuration.setLinkCheckThreads(CheckExecutor.DEFAULT_LINK_CHECK_THREADS);
+        configuration.setLinkCheckThreadsPerHost(CheckExecutor.DEFAULT_LINK_CHECK_THREADS_PER_HOST);
+        configuration.setSitemapConcurrency(CheckExecutor.DEFAULT_SITEMAP_CONCURRENCY);
+        configuration.setSitemapConcurrencyPerHost(CheckExecutor.DEFAULT_SITEMAP_CONCURRENCY_PER_HOST);
+        configuration.setSitemapIndexConcurrency(CheckExecutor.DEFAULT_SITEMAP_INDEX_CONCURRENCY);
+        configuration.setSpiderConcurrency(CheckExecutor.DEFAULT_SPIDER_CONCURRENCY);
+        configuration.setSpillToDisk(false);
+        configuration.setSpillVisitedUrlsThreshold(CheckExecutor.DEFAULT_SPILL_VISITED_URLS);
+        configuration.setSpillFrontierThreshold(CheckExecutor.DEFAULT_SPILL_FRONTIER);
+        configuration.setMaxBodySizeKb(CheckExecutor.DEFAULT_MAX_BODY_SIZE_KB);
+        configuration.setXmlStreaming(false);
+        configuration.setJsonStreaming(false);
+        configuration.setConditionalRequests(true);
+        configuration.setSitemapFullSweepRuns(CheckExecutor.DEFAULT_SITEMAP_FULL_SWEEP_RUNS);
+        configuration.setSitemapSamplePercent(CheckExecutor.DEFAULT_SITEMAP_SAMPLE_PERCENT);
+        configuration.setHttpMaxConnectionsTotal(HttpClientPool.DEFAULT_MAX_CONNECTIONS_TOTAL);
+        configuration.setHttpMaxConnectionsPerRoute(HttpClientPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        configuration.setHttpIdleConnectionSeconds(HttpClientPool.DEFAULT_IDLE_CONNECTION_SECONDS);
+        configuration.setAsyncHttpEngine(false);
+        configuration.setAsyncHttpMaxRequests(AsyncHttpEngine.DEFAULT_MAX_REQUESTS);
         configuration.setAdminUsername("admin");
         configuration.setAdminPassword(new BCryptPasswordEncoder().encode("admin"));
         configuration.setSendEmails(false);
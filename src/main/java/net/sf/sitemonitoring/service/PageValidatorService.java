@@ -0,0 +1,81 @@
+package net.sf.sitemonitoring.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import net.sf.sitemonitoring.entity.PageValidator;
+import net.sf.sitemonitoring.repository.PageValidatorRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Validators of pages checked by sitemap and spider checks, they're sent in
+ * conditional requests (If-None-Match, If-Modified-Since) of later runs.
+ */
+@Service
+@Transactional
+public class PageValidatorService {
+
+	@Autowired
+	private PageValidatorRepository pageValidatorRepository;
+
+	/**
+	 * @return Validators of page, null if page wasn't stored.
+	 */
+	public PageValidator find(int checkId, String url) {
+		List<PageValidator> pageValidators = pageValidatorRepository.find(checkId, url);
+		return pageValidators.isEmpty() ? null : pageValidators.get(0);
+	}
+
+	/**
+	 * Stores validators of page, which passed the check.
+	 *
+	 * @param links
+	 *            links found on the page, null if they weren't needed
+	 */
+	public void save(int checkId, String url, String etag, String lastModified, List<String> links) {
+		PageValidator pageValidator = find(checkId, url);
+		if (pageValidator == null) {
+			pageValidator = new PageValidator();
+			pageValidator.setCheckId(checkId);
+			pageValidator.setUrl(url);
+		}
+		pageValidator.setEtag(etag);
+		pageValidator.setLastModified(lastModified);
+		pageValidator.setLinks(links == null ? null : String.join("\n", links));
+		pageValidator.setVerifiedDate(new Date());
+		pageValidatorRepository.save(pageValidator);
+	}
+
+	/**
+	 * Page must be downloaded again in the next run.
+	 */
+	public void delete(int checkId, String url) {
+		pageValidatorRepository.delete(checkId, url);
+	}
+
+	/**
+	 * Check was changed or deleted, stored pages could pass the check only
+	 * because of its old settings.
+	 */
+	public void deleteByCheckId(int checkId) {
+		pageValidatorRepository.deleteByCheckId(checkId);
+	}
+
+	/**
+	 * @return Links found on the page, null if they weren't stored.
+	 */
+	public static List<String> getLinks(PageValidator pageValidator) {
+		if (pageValidator.getLinks() == null) {
+			return null;
+		}
+		if (pageValidator.getLinks().isEmpty()) {
+			return Arrays.asList();
+		}
+		return Arrays.asList(pageValidator.getLinks().split("\n"));
+	}
+
+}
@@ -3,22 +3,43 @@ package net.sf.sitemonitoring.service;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.primefaces.push.EventBusFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.CheckState;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.event.CheckDeletedEvent;
+import net.sf.sitemonitoring.event.ClusterHeartbeatEvent;
+import net.sf.sitemonitoring.event.CheckFinishedEvent;
+import net.sf.sitemonitoring.event.CheckSavedEvent;
+import net.sf.sitemonitoring.event.CheckStartNowEvent;
 import net.sf.sitemonitoring.service.check.MonitoringService;
 
 @Service
 @Slf4j
 public class SchedulingService {
 
+	/**
+	 * Delay of next attempt, when check cannot be loaded
+	 */
+	private static final long RETRY_MILLIS = 3000;
+
+	private static final double GOLDEN_RATIO = 0.6180339887498949;
+
 	@Autowired
 	private MonitoringService monitoringService;
 
@@ -31,58 +52,281 @@ public class SchedulingService {
 	@Autowired
 	private ConfigurationService configurationService;
 
+	@Autowired
+	private EventBus eventBus;
+
+	@Autowired
+	private ClusterService clusterService;
+
+	private final CheckScheduler scheduler = new CheckScheduler(this::fire);
+
+	/**
+	 * Checks, which are running, and checks, which should start again as soon
+	 * as they finish. Guarded by itself.
+	 */
+	private final Set<Integer> running = new HashSet<>();
+
+	private final Set<Integer> waiting = new HashSet<>();
+
+	private volatile boolean loaded;
+
+	@PostConstruct
+	public void init() {
+		eventBus.register(this);
+		scheduler.start();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.stop();
+		eventBus.unregister(this);
+	}
+
 	/**
-	 * Schedule monitoring
+	 * Loads all checks to scheduler once Atmosphere is initialized. Then the
+	 * scheduler is updated by events of {@link CheckService}, database isn't
+	 * polled.
 	 */
-	@Scheduled(fixedDelay = 3000)
+	@Scheduled(fixedDelay = 1000)
 	public void runMonitoring() {
-		if (EventBusFactory.getDefault() == null) {
+		if (loaded || EventBusFactory.getDefault() == null) {
 			// Atmosphere is not yet initialized (this can happen because it's a
 			// servlet and it's initialized after Spring listener.
 			return;
 		}
-		log.debug("start run monitoring");
-		List<Check> checks = checkService.findAll();
-		for (Check check : checks) {
-			if (check.getCheckState() == CheckState.NOT_RUNNING) {
-				boolean startCheck = false;
-				Date scheduledNextDate = check.getScheduledNextDate();
-				if (scheduledNextDate == null) {
-					if (new Date().after(check.getScheduledStartDate())) {
-						startCheck = true;
-					}
-				} else {
-					if (new Date().after(scheduledNextDate)) {
-						startCheck = true;
-					}
+		log.debug("load checks to scheduler");
+		for (Check check : checkService.findAll()) {
+			schedule(check);
+		}
+		loaded = true;
+	}
+
+	/**
+	 * Starts check if it's due. Called by scheduler thread.
+	 *
+	 * @param queuedTime
+	 *            time, at which scheduler fired the check (for example now for
+	 *            checks started manually), lag is measured from it or from the
+	 *            scheduled date of the check, whichever is later
+	 */
+	void fire(int checkId, long queuedTime) {
+		Check check;
+		try {
+			check = checkService.findOne(checkId);
+		} catch (RuntimeException e) {
+			log.error("cannot load check " + checkId, e);
+			scheduler.schedule(checkId, System.currentTimeMillis() + RETRY_MILLIS);
+			return;
+		}
+		if (check == null) {
+			// deleted
+			return;
+		}
+		long fireTime = getFireTime(check);
+		if (fireTime > System.currentTimeMillis()) {
+			// start date was changed
+			scheduler.schedule(checkId, fireTime);
+			return;
+		}
+		if (clusterService != null && !clusterService.isOwned(checkId)) {
+			// another node runs it, it's scheduled again when this node gets
+			// its shard
+			return;
+		}
+		synchronized (running) {
+			if (running.contains(checkId)) {
+				// start it when it finishes
+				waiting.add(checkId);
+				return;
+			}
+			if (isRunningOnOtherNode(check)) {
+				// previous owner of the shard didn't finish it yet
+				scheduler.schedule(checkId, System.currentTimeMillis() + RETRY_MILLIS);
+				return;
+			}
+			running.add(checkId);
+		}
+		Date now = new Date();
+		Date scheduledNextDate = isSpreadChecks() ? getSpreadNextDate(check, now) : getNextDate(check, now);
+		scheduler.schedule(checkId, scheduledNextDate.getTime());
+		boolean started = false;
+		try {
+			started = monitoringService.startCheck(check, new Date(Math.max(fireTime, queuedTime)), scheduledNextDate);
+		} finally {
+			if (!started) {
+				// skipped, it won't finish
+				synchronized (running) {
+					running.remove(checkId);
+					waiting.remove(checkId);
 				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if check is running on other node in cluster mode (unless
+	 *         it runs too long, then its node probably died)
+	 */
+	private boolean isRunningOnOtherNode(Check check) {
+		if (clusterService == null || !clusterService.isEnabled() || check.getCheckState() != CheckState.RUNNING || check.getStartDate() == null) {
+			return false;
+		}
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		int tooLongMinutes = configuration == null ? 0 : configuration.getTooLongRunningCheckMinutes();
+		return check.getStartDate().getTime() > System.currentTimeMillis() - tooLongMinutes * 60000L;
+	}
+
+	private void schedule(Check check) {
+		scheduler.schedule(check.getId(), getFireTime(check));
+	}
+
+	@Subscribe
+	public void checkSaved(CheckSavedEvent event) {
+		scheduler.schedule(event.getCheckId(), event.getFireTime());
+	}
+
+	@Subscribe
+	public void checkDeleted(CheckDeletedEvent event) {
+		if (event.getCheckId() == null) {
+			scheduler.clear();
+		} else {
+			scheduler.cancel(event.getCheckId());
+		}
+	}
 
-				if (startCheck) {
-					Calendar calendar = new GregorianCalendar();
-					switch (check.getScheduledIntervalType()) {
-					case SECOND:
-						calendar.add(Calendar.SECOND, check.getScheduledInterval());
-						break;
-					case MINUTE:
-						calendar.add(Calendar.MINUTE, check.getScheduledInterval());
-						break;
-					case HOUR:
-						calendar.add(Calendar.HOUR_OF_DAY, check.getScheduledInterval());
-						break;
-					case DAY:
-						calendar.add(Calendar.DAY_OF_MONTH, check.getScheduledInterval());
-						break;
-					case MONTH:
-						calendar.add(Calendar.MONTH, check.getScheduledInterval());
-						break;
-					default:
-						throw new UnsupportedOperationException("Unknown scheduled interval type");
-					}
-					monitoringService.startCheck(check, calendar.getTime());
+	@Subscribe
+	public void checkStartNow(CheckStartNowEvent event) {
+		scheduler.schedule(event.getCheckId(), System.currentTimeMillis());
+	}
+
+	/**
+	 * In cluster mode checks are saved and started by other nodes as well, so
+	 * after every heartbeat checks of shards of this node are scheduled from
+	 * database (only their ids and dates are read): checks, which aren't
+	 * scheduled yet (new ones or ones of newly claimed shards), and checks,
+	 * which should start now.
+	 */
+	@Subscribe
+	public void clusterHeartbeat(ClusterHeartbeatEvent event) {
+		if (!loaded) {
+			return;
+		}
+		for (Object[] schedule : checkService.findSchedules()) {
+			int checkId = (Integer) schedule[0];
+			Date scheduledStartDate = (Date) schedule[1];
+			Date scheduledNextDate = (Date) schedule[2];
+			if (!event.getShards().contains(clusterService.getShard(checkId))) {
+				continue;
+			}
+			synchronized (running) {
+				if (running.contains(checkId)) {
+					continue;
 				}
 			}
+			if (scheduledNextDate == null) {
+				scheduler.schedule(checkId, scheduledStartDate.getTime());
+			} else if (scheduler.getFireTime(checkId) == null) {
+				scheduler.schedule(checkId, scheduledNextDate.getTime());
+			}
+		}
+	}
+
+	@Subscribe
+	public void checkFinished(CheckFinishedEvent event) {
+		synchronized (running) {
+			running.remove(event.getCheckId());
+			if (waiting.remove(event.getCheckId())) {
+				scheduler.schedule(event.getCheckId(), System.currentTimeMillis());
+			}
 		}
-		log.debug("finish run monitoring");
+	}
+
+	/**
+	 * @return Time when check should start, it can be in the past.
+	 */
+	static long getFireTime(Check check) {
+		Date scheduledNextDate = check.getScheduledNextDate();
+		if (scheduledNextDate == null) {
+			return check.getScheduledStartDate().getTime();
+		}
+		return scheduledNextDate.getTime();
+	}
+
+	/**
+	 * @return Start of next run of check, which starts at date
+	 */
+	static Date getNextDate(Check check, Date date) {
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTime(date);
+		switch (check.getScheduledIntervalType()) {
+		case SECOND:
+			calendar.add(Calendar.SECOND, check.getScheduledInterval());
+			break;
+		case MINUTE:
+			calendar.add(Calendar.MINUTE, check.getScheduledInterval());
+			break;
+		case HOUR:
+			calendar.add(Calendar.HOUR_OF_DAY, check.getScheduledInterval());
+			break;
+		case DAY:
+			calendar.add(Calendar.DAY_OF_MONTH, check.getScheduledInterval());
+			break;
+		case MONTH:
+			calendar.add(Calendar.MONTH, check.getScheduledInterval());
+			break;
+		default:
+			throw new UnsupportedOperationException("Unknown scheduled interval type");
+		}
+		return calendar.getTime();
+	}
+
+	/**
+	 * @return Start of next run of check, which starts at date. Runs are
+	 *         aligned to phase of the check within its interval, phases of
+	 *         consecutive check ids are multiples of golden ratio, so they're
+	 *         spread evenly over the interval. Next run is at least half of
+	 *         the interval after date. Monthly checks aren't spread.
+	 */
+	static Date getSpreadNextDate(Check check, Date date) {
+		long interval = getIntervalMillis(check);
+		if (interval <= 0) {
+			return getNextDate(check, date);
+		}
+		double fraction = check.getId() * GOLDEN_RATIO;
+		long phase = (long) ((fraction - Math.floor(fraction)) * interval);
+		long time = date.getTime();
+		long next = Math.floorDiv(time - phase, interval) * interval + phase + interval;
+		if (next - time < interval / 2) {
+			next += interval;
+		}
+		return new Date(next);
+	}
+
+	/**
+	 * @return Interval of check in milliseconds, 0 for monthly checks
+	 */
+	private static long getIntervalMillis(Check check) {
+		switch (check.getScheduledIntervalType()) {
+		case SECOND:
+			return check.getScheduledInterval() * 1000L;
+		case MINUTE:
+			return check.getScheduledInterval() * 60000L;
+		case HOUR:
+			return check.getScheduledInterval() * 3600000L;
+		case DAY:
+			return check.getScheduledInterval() * 86400000L;
+		default:
+			return 0;
+		}
+	}
+
+	private boolean isSpreadChecks() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return configuration != null && Boolean.TRUE.equals(configuration.getSpreadChecks());
+	}
+
+	CheckScheduler getScheduler() {
+		return scheduler;
 	}
 
 	/**
@@ -138,6 +382,14 @@ public class SchedulingService {
 		}
 	}
 	
+	public void setMonitoringService(MonitoringService monitoringService) {
+		this.monitoringService = monitoringService;
+	}
+
+	public void setClusterService(ClusterService clusterService) {
+		this.clusterService = clusterService;
+	}
+
 	public void setCheckService(CheckService checkService) {
 		this.checkService = checkService;
 	}
@@ -1,6 +1,11 @@
 package net.sf.sitemonitoring.service.check;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check.CheckType;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -12,22 +17,96 @@ public abstract class AbstractCheckService {
 	@Autowired
 	protected EventBus eventBus;
 
-	protected String startAndJoinThread(AbstractCheckThread thread) {
+	@Autowired
+	protected CheckExecutor checkExecutor;
+
+	@Autowired
+	protected HttpClientPool httpClientPool;
+
+	@Autowired
+	protected AsyncHttpEngine asyncHttpEngine;
+
+	/**
+	 * @return Non-blocking HTTP engine if it's selected in configuration,
+	 *         otherwise null.
+	 */
+	protected AsyncHttpEngine getEnabledAsyncHttpEngine() {
+		if (asyncHttpEngine != null && asyncHttpEngine.isEnabled()) {
+			return asyncHttpEngine;
+		}
+		return null;
+	}
+
+	/**
+	 * Runs check on the worker pool of given check type and waits for the
+	 * result. When there's no check executor (for example in unit tests), the
+	 * check runs in the current thread.
+	 */
+	protected String executeCheck(CheckType checkType, AbstractCheckThread thread) {
 		try {
 			eventBus.register(thread);
-			thread.start();
-			thread.join();
-		} catch (InterruptedException e) {
-			log.error("interrupted check url thread", e);
-			thread.interrupt();
+			thread.setHttpClientPool(httpClientPool);
+			if (checkExecutor == null) {
+				thread.run();
+			} else {
+				Future<String> future = checkExecutor.submit(checkType, thread);
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					log.error("interrupted check url thread", e);
+					future.cancel(true);
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					log.error("error executing check", e.getCause());
+				}
+			}
 		} finally {
 			eventBus.unregister(thread);
 		}
 		return thread.getOutput();
 	}
 
+	/**
+	 * Submits check to the worker pool of given check type without waiting for
+	 * the result. {@code onDone} is called when the check finishes or when it's
+	 * cancelled. It isn't called when this method throws an exception (for
+	 * example when the pool was shut down), caller has to clean up then. When
+	 * there's no check executor, the check runs in the current thread.
+	 */
+	protected Future<String> submitCheck(CheckType checkType, AbstractCheckThread thread, Runnable onDone) {
+		eventBus.register(thread);
+		thread.setHttpClientPool(httpClientPool);
+		Runnable done = () -> {
+			eventBus.unregister(thread);
+			onDone.run();
+		};
+		try {
+			if (checkExecutor != null) {
+				return checkExecutor.submit(checkType, thread, done);
+			}
+			thread.run();
+		} catch (RuntimeException e) {
+			eventBus.unregister(thread);
+			throw e;
+		}
+		done.run();
+		return CompletableFuture.completedFuture(thread.getOutput());
+	}
+
 	public void setEventBus(EventBus eventBus) {
 		this.eventBus = eventBus;
 	}
 
+	public void setCheckExecutor(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+	}
+
+	public void setHttpClientPool(HttpClientPool httpClientPool) {
+		this.httpClientPool = httpClientPool;
+	}
+
+	public void setAsyncHttpEngine(AsyncHttpEngine asyncHttpEngine) {
+		this.asyncHttpEngine = asyncHttpEngine;
+	}
+
 }
@@ -12,6 +12,8 @@ import net.sf.sitemonitoring.event.AbortCheckEvent;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -19,10 +21,14 @@ import org.apache.http.impl.client.HttpClients;
 
 import com.google.common.eventbus.Subscribe;
 
+/**
+ * Single execution of a check. It's executed by {@link CheckExecutor} on one
+ * of its worker threads (or directly by a parent check).
+ */
 @Slf4j
-public abstract class AbstractCheckThread extends Thread {
+public abstract class AbstractCheckThread implements Runnable {
 
-	protected boolean abort = false;
+	protected volatile boolean abort = false;
 
 	protected String output;
 
@@ -30,9 +36,16 @@ public abstract class AbstractCheckThread extends Thread {
 
 	protected CloseableHttpClient httpClient;
 
+	/**
+	 * When set, HTTP client is shared with other checks and it's not closed
+	 * after the check.
+	 */
+	protected HttpClientPool httpClientPool;
+
+	private volatile HttpRequestBase currentRequest;
+
 	public AbstractCheckThread(Check check) {
 		this.check = check;
-		setDaemon(true);
 	}
 
 	@Subscribe
@@ -41,20 +54,45 @@ public abstract class AbstractCheckThread extends Thread {
 		if (check.getId() == abortCheckEvent.getCheckId()) {
 			log.debug("aborted check " + check.getId());
 			abort = true;
-			httpClient.close();
+			HttpRequestBase request = currentRequest;
+			if (request != null) {
+				request.abort();
+			}
+			if (httpClientPool == null && httpClient != null) {
+				httpClient.close();
+			}
 		}
 	}
 
 	public abstract void performCheck();
 
+	/**
+	 * Executes request, which can be aborted by {@link AbortCheckEvent}.
+	 */
+	protected CloseableHttpResponse execute(HttpRequestBase request) throws IOException {
+		return execute(httpClient, request);
+	}
+
+	protected CloseableHttpResponse execute(CloseableHttpClient httpClient, HttpRequestBase request) throws IOException {
+		currentRequest = request;
+		if (abort) {
+			request.abort();
+		}
+		return httpClient.execute(request);
+	}
+
 	protected CloseableHttpClient buildHttpClient() {
+		return newHttpClientBuilder(check).build();
+	}
+
+	static HttpClientBuilder newHttpClientBuilder(Check check) {
 		HttpClientBuilder httpClientBuilder = HttpClients.custom();
 		CredentialsProvider credsProvider = new BasicCredentialsProvider();
 
 		try {
 			Credentials credentials = check.getCredentials();
 			if (credentials != null) {
-				basicAuthentication(httpClientBuilder, credsProvider, credentials);
+				basicAuthentication(check, httpClientBuilder, credsProvider, credentials);
 			}
 		} catch (Exception ex) {
 			throw new RuntimeException("Could not use credentials");
@@ -65,10 +103,10 @@ public abstract class AbstractCheckThread extends Thread {
 					new UsernamePasswordCredentials(check.getHttpProxyUsername(), check.getHttpProxyPassword()));
 			httpClientBuilder.setDefaultCredentialsProvider(credsProvider);
 		}
-		return httpClientBuilder.build();
+		return httpClientBuilder;
 	}
 
-	private void basicAuthentication(HttpClientBuilder httpClientBuilder, CredentialsProvider credsProvider, Credentials credentials) throws URISyntaxException {
+	private static void basicAuthentication(Check check, HttpClientBuilder httpClientBuilder, CredentialsProvider credsProvider, Credentials credentials) throws URISyntaxException {
 		URI uri = new URI(check.getUrl());
 		credsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), new UsernamePasswordCredentials(credentials.getUsername(), credentials.getPassword()));
 		httpClientBuilder.setDefaultCredentialsProvider(credsProvider);
@@ -76,6 +114,11 @@ public abstract class AbstractCheckThread extends Thread {
 
 	@Override
 	public void run() {
+		if (httpClientPool != null) {
+			httpClient = httpClientPool.getHttpClient(check);
+			performCheck();
+			return;
+		}
 		httpClient = buildHttpClient();
 		try {
 			performCheck();
@@ -101,6 +144,13 @@ public abstract class AbstractCheckThread extends Thread {
 		}
 	}
 
+	/**
+	 * @return URL used to find out if page was already visited
+	 */
+	protected String canonicalUrl(String url) {
+		return UrlCanonicalizer.canonicalize(url, Boolean.TRUE.equals(check.getSortQueryParameters()));
+	}
+
 	protected void copyConnectionSettings(Check original, Check result) {
 		result.setConnectionTimeout(original.getConnectionTimeout());
 		result.setSocketTimeout(original.getSocketTimeout());
@@ -111,4 +161,8 @@ public abstract class AbstractCheckThread extends Thread {
 		result.setHttpProxyPassword(original.getHttpProxyPassword());
 	}
 
+	public void setHttpClientPool(HttpClientPool httpClientPool) {
+		this.httpClientPool = httpClientPool;
+	}
+
 }
@@ -2,6 +2,8 @@ package net.sf.sitemonitoring.service.check;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.PageValidator;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
@@ -14,35 +16,30 @@ import org.apache.http.client.methods.HttpRequestBase;
 import javax.net.ssl.SSLHandshakeException;
 import java.io.IOException;
 import java.net.URI;
-import java.util.Map;
 
 @Slf4j
 public abstract class AbstractSingleCheckThread extends AbstractCheckThread {
 
-	protected Map<URI, Object> visitedPagesGet;
+	protected VisitedUrlSet visitedPagesGet;
 
-	protected Map<URI, Object> visitedPagesHead;
+	protected VisitedUrlSet visitedPagesHead;
 
-	public AbstractSingleCheckThread(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	public AbstractSingleCheckThread(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
 		super(check);
 		this.visitedPagesGet = visitedPagesGet;
 		this.visitedPagesHead = visitedPagesHead;
 	}
 
-	private void addVisitedPageGet(URI page) {
-		visitedPagesGet.put(page, null);
+	/**
+	 * @return true if page wasn't visited before (links can be checked in
+	 *         parallel, therefore test and set must be single operation)
+	 */
+	private boolean addVisitedPageGet(URI page) {
+		return visitedPagesGet.add(canonicalUrl(page.toString()));
 	}
 
-	private boolean isVisitedPageGet(URI page) {
-		return visitedPagesGet.containsKey(page);
-	}
-
-	private void addVisitedPageHead(URI page) {
-		visitedPagesHead.put(page, null);
-	}
-
-	private boolean isVisitedPageHead(URI page) {
-		return visitedPagesHead.containsKey(page);
+	private boolean addVisitedPageHead(URI page) {
+		return visitedPagesHead.add(canonicalUrl(page.toString()));
 	}
 
 	protected boolean checkStatusCode(HttpResponse httpResponse, String url) {
@@ -55,13 +52,28 @@ public abstract class AbstractSingleCheckThread extends AbstractCheckThread {
 	}
 
 	protected CloseableHttpResponse doGet(final String url) throws IOException {
+		return doGet(url, null);
+	}
+
+	/**
+	 * @param pageValidator
+	 *            validators of the last successful check, the request is
+	 *            conditional when they're set
+	 */
+	protected CloseableHttpResponse doGet(final String url, PageValidator pageValidator) throws IOException {
 		HttpGet request = new HttpGet(url);
 		// optimization
-		if (isVisitedPageGet(request.getURI())) {
+		if (!addVisitedPageGet(request.getURI())) {
 			log.debug("page already visited, won't visit again");
 			return null;
-		} else {
-			addVisitedPageGet(request.getURI());
+		}
+		if (pageValidator != null) {
+			if (pageValidator.getEtag() != null) {
+				request.setHeader(HttpHeaders.IF_NONE_MATCH, pageValidator.getEtag());
+			}
+			if (pageValidator.getLastModified() != null) {
+				request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, pageValidator.getLastModified());
+			}
 		}
 		return doRequest(request);
 	}
@@ -69,11 +81,9 @@ public abstract class AbstractSingleCheckThread extends AbstractCheckThread {
 	protected CloseableHttpResponse doHead(final String url) throws IOException {
 		HttpHead request = new HttpHead(url);
 		// optimization
-		if (isVisitedPageHead(request.getURI())) {
+		if (!addVisitedPageHead(request.getURI())) {
 			log.debug("page already visited, won't visit again");
 			return null;
-		} else {
-			addVisitedPageHead(request.getURI());
 		}
 		return doRequest(request);
 	}
@@ -101,7 +111,7 @@ public abstract class AbstractSingleCheckThread extends AbstractCheckThread {
 		CloseableHttpResponse response = null;
 		try {
 			request.setHeader("User-Agent", check.getUserAgent());
-			response = httpClient.execute(request);
+			response = execute(request);
 		} catch (SSLHandshakeException ex) {
 			// ignore ValidatorException -> thrown when Java cannot validate
 			// certificate
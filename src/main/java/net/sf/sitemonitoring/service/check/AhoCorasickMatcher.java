@@ -0,0 +1,155 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Searches for several texts at the same time in a stream of characters, which
+ * arrive in chunks (Aho-Corasick automaton). Every character is read only once
+ * regardless of the number of texts and nothing is buffered, so a text can be
+ * split between two chunks. Not thread-safe, one instance searches one stream.
+ */
+public class AhoCorasickMatcher {
+
+	/**
+	 * Sorted characters of transitions from each state.
+	 */
+	private final char[][] transitionChars;
+
+	/**
+	 * Target states of transitions, in the same order as transitionChars.
+	 */
+	private final int[][] transitionStates;
+
+	private final int[] failure;
+
+	/**
+	 * Indexes of texts, which end in each state (including texts of failure
+	 * states).
+	 */
+	private final int[][] output;
+
+	private final boolean[] found;
+
+	private int foundCount;
+
+	private int state;
+
+	public AhoCorasickMatcher(List<String> texts) {
+		List<Map<Character, Integer>> trie = new ArrayList<>();
+		List<List<Integer>> outputs = new ArrayList<>();
+		trie.add(new TreeMap<>());
+		outputs.add(new ArrayList<>());
+		found = new boolean[texts.size()];
+		for (int i = 0; i < texts.size(); i++) {
+			int current = 0;
+			for (char c : texts.get(i).toCharArray()) {
+				Integer next = trie.get(current).get(c);
+				if (next == null) {
+					next = trie.size();
+					trie.add(new TreeMap<>());
+					outputs.add(new ArrayList<>());
+					trie.get(current).put(c, next);
+				}
+				current = next;
+			}
+			outputs.get(current).add(i);
+		}
+
+		int states = trie.size();
+		transitionChars = new char[states][];
+		transitionStates = new int[states][];
+		for (int i = 0; i < states; i++) {
+			Map<Character, Integer> transitions = trie.get(i);
+			transitionChars[i] = new char[transitions.size()];
+			transitionStates[i] = new int[transitions.size()];
+			int j = 0;
+			for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+				transitionChars[i][j] = transition.getKey();
+				transitionStates[i][j] = transition.getValue();
+				j++;
+			}
+		}
+
+		// breadth-first, failure state is always closer to root
+		failure = new int[states];
+		Queue<Integer> queue = new ArrayDeque<>(trie.get(0).values());
+		while (!queue.isEmpty()) {
+			int current = queue.remove();
+			for (Map.Entry<Character, Integer> transition : trie.get(current).entrySet()) {
+				int next = transition.getValue();
+				int fallback = current == 0 ? -1 : failure[current];
+				while (fallback > 0 && transition(fallback, transition.getKey()) == -1) {
+					fallback = failure[fallback];
+				}
+				if (fallback >= 0) {
+					int target = transition(fallback, transition.getKey());
+					failure[next] = target == -1 ? 0 : target;
+				}
+				outputs.get(next).addAll(outputs.get(failure[next]));
+				queue.add(next);
+			}
+		}
+		output = new int[states][];
+		for (int i = 0; i < states; i++) {
+			output[i] = outputs.get(i).stream().mapToInt(Integer::intValue).toArray();
+		}
+		// empty text is in every stream
+		for (int index : output[0]) {
+			markFound(index);
+		}
+	}
+
+	private int transition(int fromState, char c) {
+		int index = Arrays.binarySearch(transitionChars[fromState], c);
+		return index < 0 ? -1 : transitionStates[fromState][index];
+	}
+
+	private void markFound(int index) {
+		if (!found[index]) {
+			found[index] = true;
+			foundCount++;
+		}
+	}
+
+	/**
+	 * @return true if all texts were found in this or in previous chunks
+	 */
+	public boolean update(char[] chunk, int offset, int length) {
+		for (int i = offset; i < offset + length && foundCount < found.length; i++) {
+			char c = chunk[i];
+			int next;
+			while ((next = transition(state, c)) == -1 && state != 0) {
+				state = failure[state];
+			}
+			state = next == -1 ? 0 : next;
+			for (int index : output[state]) {
+				markFound(index);
+			}
+		}
+		return isAllFound();
+	}
+
+	public boolean update(String text) {
+		char[] chars = text.toCharArray();
+		return update(chars, 0, chars.length);
+	}
+
+	/**
+	 * @return true if text with given index (in the list from constructor) was
+	 *         found
+	 */
+	public boolean isFound(int index) {
+		return found[index];
+	}
+
+	public boolean isAllFound() {
+		return foundCount == found.length;
+	}
+
+}
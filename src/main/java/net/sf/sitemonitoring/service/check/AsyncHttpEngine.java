@@ -0,0 +1,352 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+import javax.net.ssl.SSLHandshakeException;
+
+import org.apache.http.ParseException;
+import org.apache.http.entity.ContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.HttpMethod;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.entity.Credentials;
+import net.sf.sitemonitoring.service.ConfigurationService;
+
+/**
+ * Non-blocking alternative to {@link SinglePageCheckThread} (without broken
+ * links check) built on java.net.http.HttpClient. Requests don't hold a thread
+ * while waiting for the response, so lots of them can be in flight at the same
+ * time. Response body is read like by {@link SinglePageCheckThread} (while
+ * it's downloaded, with the same default charset and max. body size), so result
+ * text is the same.
+ */
+@Slf4j
+@Service
+public class AsyncHttpEngine {
+
+	public static final int DEFAULT_MAX_REQUESTS = 500;
+
+	private static final int THREADS = 4;
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	@Autowired
+	private CheckExecutor checkExecutor;
+
+	private ExecutorService executor;
+
+	private HostLimiter hostLimiter;
+
+	private final ConcurrentMap<String, HttpClient> httpClients = new ConcurrentHashMap<>();
+
+	/**
+	 * @return true if asynchronous HTTP engine was selected in configuration
+	 */
+	public boolean isEnabled() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return configuration != null && Boolean.TRUE.equals(configuration.getAsyncHttpEngine());
+	}
+
+	/**
+	 * @return How many requests of one check can be in flight at the same time.
+	 */
+	public int getMaxRequests() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		if (configuration == null || configuration.getAsyncHttpMaxRequests() == null || configuration.getAsyncHttpMaxRequests() <= 0) {
+			return DEFAULT_MAX_REQUESTS;
+		}
+		return configuration.getAsyncHttpMaxRequests();
+	}
+
+	/**
+	 * Sends request of single page check. If there are too many requests to
+	 * the same host, waits in the calling thread.
+	 *
+	 * @return Check output (null if check was successful)
+	 */
+	public CompletableFuture<String> check(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) throws InterruptedException {
+		return check(check, visitedPagesGet, visitedPagesHead, getHostLimiter());
+	}
+
+	/**
+	 * Same as {@link #check(Check, VisitedUrlSet, VisitedUrlSet)}, requests per host are limited
+	 * by given host limiter.
+	 */
+	public CompletableFuture<String> check(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead, HostLimiter hostLimiter) throws InterruptedException {
+		String url = check.getUrl();
+		HttpRequest.Builder builder;
+		try {
+			URI uri = URI.create(url);
+			VisitedUrlSet visitedPages = check.getHttpMethod() == HttpMethod.HEAD ? visitedPagesHead : visitedPagesGet;
+			// optimization
+			if (!visitedPages.add(UrlCanonicalizer.canonicalize(uri.toString(), Boolean.TRUE.equals(check.getSortQueryParameters())))) {
+				log.debug("page already visited, won't visit again");
+				return CompletableFuture.completedFuture(null);
+			}
+			builder = HttpRequest.newBuilder(uri);
+		} catch (IllegalArgumentException ex) {
+			return CompletableFuture.completedFuture(url + " has error: incorrect URL");
+		}
+		HttpRequest request;
+		try {
+			request = buildRequest(check, builder);
+		} catch (IllegalArgumentException ex) {
+			// java.net.http.HttpClient doesn't allow some headers (Host, Connection, ...)
+			return CompletableFuture.completedFuture(url + " has error: invalid header: " + ex.getMessage());
+		}
+		if (log.isDebugEnabled()) {
+			log.debug(request.method() + " " + request.uri());
+		}
+		hostLimiter.acquire(url);
+		CompletableFuture<String> result;
+		try {
+			result = getHttpClient(check).sendAsync(request, bodyHandler(check)).handle((response, ex) -> ex == null ? evaluate(check, response) : error(check, ex));
+		} catch (RuntimeException ex) {
+			hostLimiter.release(url);
+			throw ex;
+		}
+		result.whenComplete((output, ex) -> hostLimiter.release(url));
+		return result;
+	}
+
+	private HttpRequest buildRequest(Check check, HttpRequest.Builder builder) {
+		if (check.getHttpMethod() == HttpMethod.HEAD) {
+			builder.method("HEAD", HttpRequest.BodyPublishers.noBody());
+		} else if (check.getHttpMethod() == HttpMethod.GET) {
+			builder.GET();
+		} else {
+			throw new UnsupportedOperationException("Unknown HTTP METHOD: " + check.getHttpMethod());
+		}
+		if (check.getSocketTimeout() > 0) {
+			builder.timeout(Duration.ofMillis(check.getSocketTimeout()));
+		}
+		String header = check.getHeader();
+		if (header != null && header.length() > 0 && header.contains(":")) {
+			String[] headerKV = header.split(":");
+			builder.setHeader(headerKV[0], headerKV[1]);
+		}
+		if (check.getUserAgent() != null) {
+			builder.setHeader("User-Agent", check.getUserAgent());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Body is read only if it's needed to evaluate conditions and status is
+	 * correct, otherwise it's discarded.
+	 */
+	private HttpResponse.BodyHandler<ResponseBodyReader> bodyHandler(Check check) {
+		if (check.getHttpMethod() != HttpMethod.GET) {
+			return BodyHandlers.replacing(null);
+		}
+		List<PageCondition> conditions = PageCondition.of(check);
+		if (conditions.isEmpty()) {
+			return BodyHandlers.replacing(null);
+		}
+		long maxBodySize = getMaxBodySize();
+		return responseInfo -> {
+			if (responseInfo.statusCode() != check.getReturnHttpCode()) {
+				return BodySubscribers.replacing(null);
+			}
+			return new BodyReaderSubscriber(new ResponseBodyReader(conditions, maxBodySize), getCharset(responseInfo));
+		};
+	}
+
+	private static Charset getCharset(HttpResponse.ResponseInfo responseInfo) {
+		String contentType = responseInfo.headers().firstValue("Content-Type").orElse(null);
+		if (contentType == null) {
+			return null;
+		}
+		try {
+			return ContentType.parse(contentType).getCharset();
+		} catch (ParseException | UnsupportedCharsetException ex) {
+			log.debug("invalid content type: " + contentType, ex);
+			return null;
+		}
+	}
+
+	private long getMaxBodySize() {
+		return checkExecutor == null ? CheckExecutor.DEFAULT_MAX_BODY_SIZE_KB * 1024L : checkExecutor.getMaxBodySize();
+	}
+
+	private String evaluate(Check check, HttpResponse<ResponseBodyReader> response) {
+		if (log.isDebugEnabled()) {
+			log.debug("status: " + response.statusCode() + " " + check.getUrl());
+		}
+		if (response.statusCode() != check.getReturnHttpCode()) {
+			return "Invalid status: " + check.getUrl() + " required: " + check.getReturnHttpCode() + ", received: " + response.statusCode() + " ";
+		}
+		ResponseBodyReader bodyReader = response.body();
+		if (bodyReader != null) {
+			return bodyReader.evaluate(check.getUrl());
+		}
+		return null;
+	}
+
+	private String error(Check check, Throwable ex) {
+		String url = check.getUrl();
+		Throwable cause = ex;
+		while (cause.getCause() != null && !(cause instanceof IOException)) {
+			cause = cause.getCause();
+		}
+		log.debug(url + " error", cause);
+		if (cause instanceof HttpConnectTimeoutException) {
+			return url + " has error: connect timeout";
+		} else if (cause instanceof HttpTimeoutException) {
+			return url + " has error: socket timeout";
+		} else if (isUnknownHost(cause)) {
+			return url + ": Unknown host: " + URI.create(url).getHost();
+		} else if (cause instanceof ConnectException) {
+			return url + ": Cannot connect to: " + URI.create(url).getHost();
+		} else if (cause instanceof SSLHandshakeException) {
+			// same as blocking engine: ignore when Java cannot validate certificate
+			log.error("java could not validate certificate for URL: " + url, cause);
+			return null;
+		} else if (cause instanceof IllegalArgumentException) {
+			return url + " has error: incorrect URL";
+		} else if (cause instanceof IOException) {
+			return url + " has error: error downloading: " + url + " exception: " + cause.getClass().getName();
+		}
+		return url + " has error: " + cause.getMessage();
+	}
+
+	private static boolean isUnknownHost(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (cause instanceof UnknownHostException || cause instanceof UnresolvedAddressException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private HttpClient getHttpClient(Check check) {
+		String key = HttpClientPool.getKey(check) + "|" + check.getHttpProxyServer() + ":" + check.getHttpProxyPort() + "|" + check.getConnectionTimeout();
+		return httpClients.computeIfAbsent(key, k -> {
+			log.debug("create asynchronous HTTP client for " + check.getUrl());
+			HttpClient.Builder builder = HttpClient.newBuilder().executor(getExecutor()).followRedirects(Redirect.NORMAL);
+			if (check.getConnectionTimeout() > 0) {
+				builder.connectTimeout(Duration.ofMillis(check.getConnectionTimeout()));
+			}
+			if (check.getHttpProxyServer() != null && !check.getHttpProxyServer().isEmpty()) {
+				int port = check.getHttpProxyPort() == null ? 80 : check.getHttpProxyPort();
+				builder.proxy(ProxySelector.of(new InetSocketAddress(check.getHttpProxyServer(), port)));
+			}
+			Credentials credentials = check.getCredentials();
+			String proxyUsername = check.getHttpProxyUsername();
+			String proxyPassword = check.getHttpProxyPassword();
+			if (credentials != null || (proxyUsername != null && proxyPassword != null && !proxyPassword.isEmpty())) {
+				builder.authenticator(new CheckAuthenticator(check));
+			}
+			return builder.build();
+		});
+	}
+
+	/**
+	 * Gives credentials of the check only to its host (and port, if it's in
+	 * the URL) and proxy credentials only to the proxy, like AuthScope of
+	 * blocking HTTP client. Links to other hosts don't get them.
+	 */
+	static class CheckAuthenticator extends Authenticator {
+
+		private final Credentials credentials;
+
+		private final String host;
+
+		private final int port;
+
+		private final String proxyServer;
+
+		private final String proxyUsername;
+
+		private final String proxyPassword;
+
+		CheckAuthenticator(Check check) {
+			credentials = check.getCredentials();
+			URI uri = URI.create(check.getUrl());
+			host = uri.getHost();
+			port = uri.getPort();
+			proxyServer = check.getHttpProxyServer();
+			proxyUsername = check.getHttpProxyUsername();
+			proxyPassword = check.getHttpProxyPassword();
+		}
+
+		@Override
+		protected PasswordAuthentication getPasswordAuthentication() {
+			if (getRequestorType() == RequestorType.PROXY) {
+				if (proxyUsername != null && proxyPassword != null && getRequestingHost().equalsIgnoreCase(proxyServer)) {
+					return new PasswordAuthentication(proxyUsername, proxyPassword.toCharArray());
+				}
+			} else if (credentials != null && getRequestingHost().equalsIgnoreCase(host) && (port == -1 || port == getRequestingPort())) {
+				return new PasswordAuthentication(credentials.getUsername(), credentials.getPassword().toCharArray());
+			}
+			return null;
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("async-http-%d").build());
+		}
+		return executor;
+	}
+
+	private synchronized HostLimiter getHostLimiter() {
+		if (hostLimiter == null) {
+			Configuration configuration = configurationService == null ? null : configurationService.find();
+			Integer perHost = configuration == null ? null : configuration.getLinkCheckThreadsPerHost();
+			hostLimiter = new HostLimiter(perHost == null || perHost <= 0 ? CheckExecutor.DEFAULT_LINK_CHECK_THREADS_PER_HOST : perHost);
+		}
+		return hostLimiter;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		httpClients.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	public void setConfigurationService(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+	public void setCheckExecutor(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+	}
+
+}
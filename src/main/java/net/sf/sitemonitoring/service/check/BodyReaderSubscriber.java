@@ -0,0 +1,142 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Passes response body of {@link AsyncHttpEngine} to {@link ResponseBodyReader}
+ * while it's downloaded, so the body isn't kept in memory. Download is
+ * cancelled when the reader doesn't need the rest of the body (all texts were
+ * found or the body is longer than max. body size).
+ */
+class BodyReaderSubscriber implements BodySubscriber<ResponseBodyReader> {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final ResponseBodyReader bodyReader;
+
+	private final CharsetDecoder decoder;
+
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+	private final CompletableFuture<ResponseBodyReader> body = new CompletableFuture<>();
+
+	private Flow.Subscription subscription;
+
+	/**
+	 * Bytes of a character split between buffers
+	 */
+	private ByteBuffer remainder;
+
+	private long bytesRead;
+
+	private boolean finished;
+
+	/**
+	 * @param charset
+	 *            charset of the response, null if it's not set
+	 */
+	BodyReaderSubscriber(ResponseBodyReader bodyReader, Charset charset) {
+		this.bodyReader = bodyReader;
+		// same as InputStreamReader of blocking engine
+		decoder = ResponseBodyReader.getCharset(charset).newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bodyReader.start(false);
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(1);
+	}
+
+	@Override
+	public void onNext(List<ByteBuffer> buffers) {
+		if (finished) {
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			bytesRead += buffer.remaining();
+			if (!decode(buffer, false)) {
+				subscription.cancel();
+				finish();
+				return;
+			}
+		}
+		subscription.request(1);
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		finished = true;
+		body.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		if (!finished) {
+			decode(ByteBuffer.allocate(0), true);
+			finish();
+		}
+	}
+
+	@Override
+	public CompletionStage<ResponseBodyReader> getBody() {
+		return body;
+	}
+
+	private void finish() {
+		finished = true;
+		bodyReader.finish();
+		body.complete(bodyReader);
+	}
+
+	/**
+	 * @return false if the rest of the body isn't needed
+	 */
+	private boolean decode(ByteBuffer buffer, boolean endOfInput) {
+		ByteBuffer input = buffer;
+		if (remainder != null) {
+			input = ByteBuffer.allocate(remainder.remaining() + buffer.remaining());
+			input.put(remainder).put(buffer).flip();
+			remainder = null;
+		}
+		CoderResult result;
+		do {
+			result = decoder.decode(input, chars, endOfInput);
+			if (!flushChars()) {
+				return false;
+			}
+		} while (result.isOverflow());
+		if (endOfInput) {
+			while (decoder.flush(chars).isOverflow()) {
+				flushChars();
+			}
+			return flushChars();
+		}
+		if (input.hasRemaining()) {
+			remainder = ByteBuffer.allocate(input.remaining());
+			remainder.put(input).flip();
+		}
+		return true;
+	}
+
+	private boolean flushChars() {
+		if (chars.position() == 0) {
+			return true;
+		}
+		chars.flip();
+		boolean more = bodyReader.update(chars.array(), 0, chars.limit(), bytesRead);
+		chars.clear();
+		return more;
+	}
+
+}
@@ -0,0 +1,333 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.service.ConfigurationService;
+
+/**
+ * Executes checks on bounded worker pools (one pool per check type). The
+ * number of threads stays the same no matter how many checks are running.
+ */
+@Slf4j
+@Service
+public class CheckExecutor {
+
+	public static final int DEFAULT_SINGLE_PAGE_THREADS = 10;
+
+	public static final int DEFAULT_SITEMAP_THREADS = 2;
+
+	public static final int DEFAULT_SPIDER_THREADS = 2;
+
+	public static final int DEFAULT_XML_THREADS = 5;
+
+	public static final int DEFAULT_JSON_THREADS = 5;
+
+	public static final int DEFAULT_XSD_THREADS = 5;
+
+	public static final int DEFAULT_LINK_CHECK_THREADS = 10;
+
+	public static final int DEFAULT_LINK_CHECK_THREADS_PER_HOST = 4;
+
+	public static final int DEFAULT_SITEMAP_CONCURRENCY = 10;
+
+	public static final int DEFAULT_SITEMAP_CONCURRENCY_PER_HOST = 4;
+
+	public static final int DEFAULT_SITEMAP_INDEX_CONCURRENCY = 4;
+
+	public static final int DEFAULT_SPIDER_CONCURRENCY = 10;
+
+	public static final int DEFAULT_SPILL_VISITED_URLS = 100000;
+
+	public static final int DEFAULT_SPILL_FRONTIER = 10000;
+
+	public static final int DEFAULT_MAX_BODY_SIZE_KB = 10240;
+
+	public static final int DEFAULT_SITEMAP_FULL_SWEEP_RUNS = 96;
+
+	public static final int DEFAULT_SITEMAP_SAMPLE_PERCENT = 5;
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	private final Map<CheckType, ExecutorService> executors = new EnumMap<>(CheckType.class);
+
+	/**
+	 * Broken links have their own pool, because page checks wait for them
+	 * (in the same pool this could end up in a deadlock).
+	 */
+	private ExecutorService linkCheckExecutor;
+
+	private HostLimiter linkCheckHostLimiter;
+
+	/**
+	 * Child sitemaps of sitemap index. Sitemap checks wait for them and they
+	 * wait for single page checks, so they have their own pool as well.
+	 */
+	private ExecutorService childSitemapExecutor;
+
+	public Future<String> submit(CheckType checkType, AbstractCheckThread thread) {
+		return getExecutor(checkType).submit(() -> {
+			thread.run();
+			return thread.getOutput();
+		});
+	}
+
+	/**
+	 * Submits check without waiting for it. {@code onDone} is called when the
+	 * check finishes or when it's cancelled.
+	 */
+	public Future<String> submit(CheckType checkType, AbstractCheckThread thread, Runnable onDone) {
+		FutureTask<String> task = new FutureTask<String>(() -> {
+			thread.run();
+			return thread.getOutput();
+		}) {
+			@Override
+			protected void done() {
+				onDone.run();
+			}
+		};
+		getExecutor(checkType).execute(task);
+		return task;
+	}
+
+	/**
+	 * Submits broken link check. At most "link check threads per host" links
+	 * are checked on the same host at the same time.
+	 */
+	public Future<String> submitLinkCheck(AbstractCheckThread thread, String url) {
+		ExecutorService executor = getLinkCheckExecutor();
+		HostLimiter hostLimiter = linkCheckHostLimiter;
+		return executor.submit(() -> {
+			hostLimiter.acquire(url);
+			try {
+				thread.run();
+			} finally {
+				hostLimiter.release(url);
+			}
+			return thread.getOutput();
+		});
+	}
+
+	/**
+	 * @return How many broken links can be checked at the same time. If it's
+	 *         1, links are checked one by one in the page check thread.
+	 */
+	public int getLinkCheckParallelism() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getLinkCheckThreads(), DEFAULT_LINK_CHECK_THREADS);
+	}
+
+	/**
+	 * Submits download and check of a child sitemap of sitemap index.
+	 */
+	public Future<String> submitChildSitemap(Callable<String> task) {
+		return getChildSitemapExecutor().submit(task);
+	}
+
+	/**
+	 * @return How many child sitemaps of one sitemap index can be downloaded
+	 *         and checked at the same time.
+	 */
+	public int getSitemapIndexConcurrency() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getSitemapIndexConcurrency(), DEFAULT_SITEMAP_INDEX_CONCURRENCY);
+	}
+
+	/**
+	 * @return How many URLs of one sitemap can be checked at the same time. If
+	 *         it's 1, URLs are checked one by one.
+	 */
+	public int getSitemapConcurrency() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getSitemapConcurrency(), DEFAULT_SITEMAP_CONCURRENCY);
+	}
+
+	/**
+	 * @return How many pages of one spider check can be checked at the same
+	 *         time. If it's 1, pages are checked one by one.
+	 */
+	public int getSpiderConcurrency() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getSpiderConcurrency(), DEFAULT_SPIDER_CONCURRENCY);
+	}
+
+	/**
+	 * @return How many visited URLs of one check are kept in memory before
+	 *         they're moved to disk, 0 if spill to disk is disabled.
+	 */
+	public int getVisitedUrlsMemoryThreshold() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		if (configuration == null || !Boolean.TRUE.equals(configuration.getSpillToDisk())) {
+			return 0;
+		}
+		return poolSize(configuration.getSpillVisitedUrlsThreshold(), DEFAULT_SPILL_VISITED_URLS);
+	}
+
+	/**
+	 * @return How many pages found by spider are kept in memory before they're
+	 *         moved to disk, 0 if spill to disk is disabled.
+	 */
+	public int getFrontierMemoryThreshold() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		if (configuration == null || !Boolean.TRUE.equals(configuration.getSpillToDisk())) {
+			return 0;
+		}
+		return poolSize(configuration.getSpillFrontierThreshold(), DEFAULT_SPILL_FRONTIER);
+	}
+
+	/**
+	 * @return How many bytes of response body are read at most.
+	 */
+	public long getMaxBodySize() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getMaxBodySizeKb(), DEFAULT_MAX_BODY_SIZE_KB) * 1024L;
+	}
+
+	/**
+	 * @return true if simple XPath expressions of XML checks are evaluated
+	 *         without DOM
+	 */
+	public boolean isXmlStreaming() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return configuration != null && Boolean.TRUE.equals(configuration.getXmlStreaming());
+	}
+
+	/**
+	 * @return true if simple JsonPath expressions of JSON checks are evaluated
+	 *         while JSON is downloaded
+	 */
+	public boolean isJsonStreaming() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return configuration != null && Boolean.TRUE.equals(configuration.getJsonStreaming());
+	}
+
+	/**
+	 * @return Incremental sitemap check checks all URLs in every N-th run.
+	 */
+	public int getSitemapFullSweepRuns() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getSitemapFullSweepRuns(), DEFAULT_SITEMAP_FULL_SWEEP_RUNS);
+	}
+
+	/**
+	 * @return How many percent of unchanged URLs incremental sitemap check
+	 *         checks in every run (0 - 100).
+	 */
+	public int getSitemapSamplePercent() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		if (configuration == null || configuration.getSitemapSamplePercent() == null) {
+			return DEFAULT_SITEMAP_SAMPLE_PERCENT;
+		}
+		return Math.max(0, Math.min(100, configuration.getSitemapSamplePercent()));
+	}
+
+	/**
+	 * @return true if pages of sitemap and spider checks are requested with
+	 *         validators of the last successful check
+	 */
+	public boolean isConditionalRequests() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return configuration != null && Boolean.TRUE.equals(configuration.getConditionalRequests());
+	}
+
+	public int getSitemapConcurrencyPerHost() {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		return poolSize(configuration == null ? null : configuration.getSitemapConcurrencyPerHost(), DEFAULT_SITEMAP_CONCURRENCY_PER_HOST);
+	}
+
+	private synchronized ExecutorService getLinkCheckExecutor() {
+		if (linkCheckExecutor == null) {
+			Configuration configuration = configurationService == null ? null : configurationService.find();
+			int poolSize = getLinkCheckParallelism();
+			int threadsPerHost = poolSize(configuration == null ? null : configuration.getLinkCheckThreadsPerHost(), DEFAULT_LINK_CHECK_THREADS_PER_HOST);
+			log.info("create link check pool with " + poolSize + " threads, " + threadsPerHost + " per host");
+			linkCheckHostLimiter = new HostLimiter(threadsPerHost);
+			linkCheckExecutor = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("check-link-%d").build());
+		}
+		return linkCheckExecutor;
+	}
+
+	private synchronized ExecutorService getChildSitemapExecutor() {
+		if (childSitemapExecutor == null) {
+			int poolSize = getSitemapIndexConcurrency();
+			log.info("create child sitemap pool with " + poolSize + " threads");
+			childSitemapExecutor = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("check-sitemap-child-%d").build());
+		}
+		return childSitemapExecutor;
+	}
+
+	private synchronized ExecutorService getExecutor(CheckType checkType) {
+		ExecutorService executor = executors.get(checkType);
+		if (executor == null) {
+			int poolSize = getPoolSize(checkType);
+			log.info("create " + checkType + " check pool with " + poolSize + " threads");
+			executor = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("check-" + checkType.name().toLowerCase() + "-%d").build());
+			executors.put(checkType, executor);
+		}
+		return executor;
+	}
+
+	private int getPoolSize(CheckType checkType) {
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		switch (checkType) {
+		case SINGLE_PAGE:
+			return poolSize(configuration == null ? null : configuration.getSinglePageCheckThreads(), DEFAULT_SINGLE_PAGE_THREADS);
+		case SITEMAP:
+			return poolSize(configuration == null ? null : configuration.getSitemapCheckThreads(), DEFAULT_SITEMAP_THREADS);
+		case SPIDER:
+			return poolSize(configuration == null ? null : configuration.getSpiderCheckThreads(), DEFAULT_SPIDER_THREADS);
+		case XML:
+			return poolSize(configuration == null ? null : configuration.getXmlCheckThreads(), DEFAULT_XML_THREADS);
+		case JSON:
+			return poolSize(configuration == null ? null : configuration.getJsonCheckThreads(), DEFAULT_JSON_THREADS);
+		case XSD:
+			return poolSize(configuration == null ? null : configuration.getXsdCheckThreads(), DEFAULT_XSD_THREADS);
+		default:
+			throw new UnsupportedOperationException("this check type is not supported!");
+		}
+	}
+
+	private static int poolSize(Integer configured, int defaultValue) {
+		if (configured == null || configured <= 0) {
+			return defaultValue;
+		}
+		return configured;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		for (ExecutorService executor : executors.values()) {
+			executor.shutdownNow();
+		}
+		executors.clear();
+		if (linkCheckExecutor != null) {
+			linkCheckExecutor.shutdownNow();
+			linkCheckExecutor = null;
+		}
+		if (childSitemapExecutor != null) {
+			childSitemapExecutor.shutdownNow();
+			childSitemapExecutor = null;
+		}
+	}
+
+	public void setConfigurationService(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+}
@@ -0,0 +1,96 @@
+package net.sf.sitemonitoring.service.check;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.service.ConfigurationService;
+
+/**
+ * Runs scheduled checks. Quick checks (single page, XML, JSON, XSD) and long
+ * running checks (sitemap, spider) have separate pools with bounded queues,
+ * so a few long checks cannot hold up all the quick ones.
+ */
+@Slf4j
+@Service
+public class CheckRunExecutor {
+
+	public static final int DEFAULT_PAGE_RUN_THREADS = 10;
+
+	public static final int DEFAULT_CRAWL_RUN_THREADS = 4;
+
+	public static final int DEFAULT_RUN_QUEUE_SIZE = 100;
+
+	public static final int DEFAULT_MAX_RUN_QUEUE_WAIT_SECONDS = 300;
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	private CheckRunPool pagePool;
+
+	private CheckRunPool crawlPool;
+
+	/**
+	 * Queues run of the check in the pool of its type.
+	 *
+	 * @param dropped
+	 *            called instead of run, when run waited in the queue too long
+	 * @return true if run was queued, false if it was skipped, because the
+	 *         queue is full
+	 */
+	public boolean execute(Check check, Runnable run, Runnable dropped) {
+		return getPool(check.getType()).execute(check, run, dropped);
+	}
+
+	public synchronized CheckRunPool getPool(CheckType checkType) {
+		if (pagePool == null) {
+			Configuration configuration = configurationService == null ? null : configurationService.find();
+			int queueSize = poolSize(configuration == null ? null : configuration.getRunQueueSize(), DEFAULT_RUN_QUEUE_SIZE);
+			int pageThreads = poolSize(configuration == null ? null : configuration.getPageRunThreads(), DEFAULT_PAGE_RUN_THREADS);
+			int crawlThreads = poolSize(configuration == null ? null : configuration.getCrawlRunThreads(), DEFAULT_CRAWL_RUN_THREADS);
+			Integer maxWaitSeconds = configuration == null ? null : configuration.getMaxRunQueueWaitSeconds();
+			long maxWaitMillis = maxWaitSeconds == null || maxWaitSeconds <= 0 ? 0 : maxWaitSeconds * 1000L;
+			log.info("create check run pools with " + pageThreads + " (page) and " + crawlThreads + " (crawl) threads, queue size " + queueSize);
+			pagePool = new CheckRunPool("page", pageThreads, queueSize, maxWaitMillis);
+			crawlPool = new CheckRunPool("crawl", crawlThreads, queueSize, maxWaitMillis);
+		}
+		switch (checkType) {
+		case SITEMAP:
+		case SPIDER:
+			return crawlPool;
+		default:
+			return pagePool;
+		}
+	}
+
+	public String getStatistics() {
+		return getPool(CheckType.SINGLE_PAGE).getStatistics() + "; " + getPool(CheckType.SPIDER).getStatistics();
+	}
+
+	private static int poolSize(Integer configured, int defaultValue) {
+		if (configured == null || configured <= 0) {
+			return defaultValue;
+		}
+		return configured;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (pagePool != null) {
+			pagePool.shutdown();
+			crawlPool.shutdown();
+			pagePool = null;
+			crawlPool = null;
+		}
+	}
+
+	public void setConfigurationService(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+}
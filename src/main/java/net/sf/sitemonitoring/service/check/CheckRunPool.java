@@ -0,0 +1,177 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check;
+
+/**
+ * Pool of threads, which run checks, with a bounded queue. When the queue is
+ * full, run of the check is skipped and counted. Run, which waited in the
+ * queue too long, is stale and it's dropped, the check runs again at its
+ * next scheduled time. It keeps statistics of the time runs wait in the
+ * queue.
+ */
+@Slf4j
+public class CheckRunPool {
+
+	private final String name;
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * 0 means no limit
+	 */
+	private final long maxQueueWaitMillis;
+
+	private final AtomicLong startedRuns = new AtomicLong();
+
+	private final AtomicLong skippedRuns = new AtomicLong();
+
+	private final AtomicLong droppedRuns = new AtomicLong();
+
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+
+	private final AtomicLong maxWaitMillis = new AtomicLong();
+
+	private class CheckRun implements Runnable {
+
+		private final Check check;
+
+		private final Runnable run;
+
+		private final Runnable dropped;
+
+		private final long submitTime = System.nanoTime();
+
+		private CheckRun(Check check, Runnable run, Runnable dropped) {
+			this.check = check;
+			this.run = run;
+			this.dropped = dropped;
+		}
+
+		@Override
+		public void run() {
+			long waitMillis = (System.nanoTime() - submitTime) / 1000000;
+			if (maxQueueWaitMillis > 0 && waitMillis > maxQueueWaitMillis) {
+				droppedRuns.incrementAndGet();
+				log.warn("dropped run of check " + check.getName() + ", it waited " + waitMillis + " ms in " + name + " check pool");
+				try {
+					dropped.run();
+				} catch (RuntimeException e) {
+					log.error("cannot drop run of check " + check.getName(), e);
+				}
+				return;
+			}
+			startedRuns.incrementAndGet();
+			totalWaitMillis.addAndGet(waitMillis);
+			maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+			try {
+				run.run();
+			} catch (RuntimeException e) {
+				log.error("check " + check.getName() + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * @param maxQueueWaitMillis
+	 *            run, which waited in the queue longer, is dropped, 0 means no
+	 *            limit
+	 */
+	public CheckRunPool(String name, int threads, int queueSize, long maxQueueWaitMillis) {
+		this.name = name;
+		this.maxQueueWaitMillis = maxQueueWaitMillis;
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("check-run-" + name + "-%d").build(), (runnable, executor) -> {
+					skippedRuns.incrementAndGet();
+					throw new RejectedExecutionException("queue of " + name + " check pool is full");
+				});
+	}
+
+	/**
+	 * @param dropped
+	 *            called instead of run, when run waited in the queue too long
+	 * @return true if run of the check was queued, false if it was skipped,
+	 *         because the queue is full
+	 */
+	public boolean execute(Check check, Runnable run, Runnable dropped) {
+		try {
+			executor.execute(new CheckRun(check, run, dropped));
+			return true;
+		} catch (RejectedExecutionException e) {
+			log.warn("skipped run of check " + check.getName() + ", queue of " + name + " check pool is full");
+			return false;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return Number of runs waiting in the queue
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getQueueSize() {
+		return executor.getQueue().size() + executor.getQueue().remainingCapacity();
+	}
+
+	/**
+	 * @return Number of checks running now
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public int getThreads() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public long getStartedRuns() {
+		return startedRuns.get();
+	}
+
+	public long getSkippedRuns() {
+		return skippedRuns.get();
+	}
+
+	/**
+	 * @return Number of runs, which were dropped, because they waited in the
+	 *         queue too long
+	 */
+	public long getDroppedRuns() {
+		return droppedRuns.get();
+	}
+
+	/**
+	 * @return Average time runs waited in the queue
+	 */
+	public long getAverageWaitMillis() {
+		long started = startedRuns.get();
+		return started == 0 ? 0 : totalWaitMillis.get() / started;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis.get();
+	}
+
+	public String getStatistics() {
+		return name + ": active " + getActiveCount() + "/" + getThreads() + ", queued " + getQueueDepth() + "/" + getQueueSize() + ", started " + getStartedRuns()
+				+ ", skipped " + getSkippedRuns() + ", dropped " + getDroppedRuns() + ", wait avg " + getAverageWaitMillis() + " ms, max " + getMaxWaitMillis() + " ms";
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
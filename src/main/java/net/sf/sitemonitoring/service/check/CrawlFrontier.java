@@ -0,0 +1,165 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * FIFO queue of pages found by spider (or of entries of sitemap). When there's
+ * more than memoryThreshold pages in memory, new pages are appended to a
+ * temporary file and they're read back when the pages in memory are taken.
+ * Referer can be null.
+ */
+@Slf4j
+public class CrawlFrontier implements Closeable {
+
+	public static class Entry {
+
+		private final String url;
+
+		private final String referer;
+
+		private final int depth;
+
+		public Entry(String url, String referer, int depth) {
+			this.url = url;
+			this.referer = referer;
+			this.depth = depth;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getReferer() {
+			return referer;
+		}
+
+		public int getDepth() {
+			return depth;
+		}
+
+	}
+
+	/**
+	 * 0 means everything stays in memory
+	 */
+	private final int memoryThreshold;
+
+	private final Deque<Entry> memory = new ArrayDeque<>();
+
+	private File file;
+
+	private DataOutputStream out;
+
+	private DataInputStream in;
+
+	/**
+	 * Number of entries written to file and not read yet
+	 */
+	private long onDisk;
+
+	public CrawlFrontier(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+	}
+
+	public void add(String url, String referer, int depth) throws IOException {
+		if (onDisk == 0 && (memoryThreshold <= 0 || memory.size() < memoryThreshold)) {
+			memory.addLast(new Entry(url, referer, depth));
+			return;
+		}
+		if (out == null) {
+			file = File.createTempFile("sitemonitoring-frontier", ".tmp");
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			log.debug("spider frontier moved to disk: " + file);
+		}
+		writeString(url);
+		writeString(referer);
+		out.writeInt(depth);
+		onDisk++;
+	}
+
+	/**
+	 * @return The oldest entry, null if frontier is empty.
+	 */
+	public Entry poll() throws IOException {
+		if (memory.isEmpty() && onDisk > 0) {
+			load();
+		}
+		return memory.pollFirst();
+	}
+
+	private void load() throws IOException {
+		out.flush();
+		if (in == null) {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+		while (onDisk > 0 && memory.size() < memoryThreshold) {
+			memory.addLast(new Entry(readString(), readString(), in.readInt()));
+			onDisk--;
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private String readString() throws IOException {
+		int length = in.readInt();
+		if (length == -1) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public boolean isEmpty() {
+		return memory.isEmpty() && onDisk == 0;
+	}
+
+	public long size() {
+		return memory.size() + onDisk;
+	}
+
+	@Override
+	public void close() {
+		memory.clear();
+		onDisk = 0;
+		try {
+			if (out != null) {
+				out.close();
+			}
+			if (in != null) {
+				in.close();
+			}
+		} catch (IOException e) {
+			log.error("Error closing spider frontier file", e);
+		}
+		if (file != null && !file.delete()) {
+			file.deleteOnExit();
+			log.debug("cannot delete " + file + ", it will be deleted on exit");
+		}
+		out = null;
+		in = null;
+		file = null;
+	}
+
+}
@@ -0,0 +1,84 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps 64-bit fingerprints of URLs in a primitive open addressing hash table,
+ * which needs 16 bytes per URL at most (URI object in a HashMap needs hundreds
+ * of bytes). Two different URLs have the same fingerprint with probability
+ * 2^-64, then the second URL isn't checked.
+ */
+public class FingerprintVisitedUrlSet implements VisitedUrlSet {
+
+	private static final long EMPTY = 0;
+
+	private long[] table = new long[64];
+
+	private int size;
+
+	static long fingerprint(String url) {
+		long fingerprint = Hashing.murmur3_128().hashString(url, StandardCharsets.UTF_8).asLong();
+		return fingerprint == EMPTY ? 1 : fingerprint;
+	}
+
+	@Override
+	public boolean add(String url) {
+		return add(fingerprint(url));
+	}
+
+	synchronized boolean add(long fingerprint) {
+		if (!put(table, fingerprint)) {
+			return false;
+		}
+		size++;
+		if (size > table.length / 2) {
+			long[] oldTable = table;
+			table = new long[oldTable.length * 2];
+			for (long value : oldTable) {
+				if (value != EMPTY) {
+					put(table, value);
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean put(long[] table, long fingerprint) {
+		int mask = table.length - 1;
+		int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+		while (true) {
+			long value = table[slot];
+			if (value == EMPTY) {
+				table[slot] = fingerprint;
+				return true;
+			}
+			if (value == fingerprint) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	synchronized void forEach(LongConsumer consumer) {
+		for (long value : table) {
+			if (value != EMPTY) {
+				consumer.accept(value);
+			}
+		}
+	}
+
+	@Override
+	public synchronized int size() {
+		return size;
+	}
+
+	@Override
+	public synchronized void close() {
+		table = new long[64];
+		size = 0;
+	}
+
+}
@@ -0,0 +1,42 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many requests can be sent to the same host at the same time.
+ */
+public class HostLimiter {
+
+	private final int permitsPerHost;
+
+	private final ConcurrentMap<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+	public HostLimiter(int permitsPerHost) {
+		this.permitsPerHost = permitsPerHost;
+	}
+
+	public void acquire(String url) throws InterruptedException {
+		getSemaphore(url).acquire();
+	}
+
+	public void release(String url) {
+		getSemaphore(url).release();
+	}
+
+	private Semaphore getSemaphore(String url) {
+		return semaphores.computeIfAbsent(getHost(url), host -> new Semaphore(permitsPerHost));
+	}
+
+	static String getHost(String url) {
+		try {
+			String host = new URI(url).getHost();
+			return host == null ? "" : host.toLowerCase();
+		} catch (Exception e) {
+			return "";
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.entity.Credentials;
+import net.sf.sitemonitoring.service.ConfigurationService;
+
+/**
+ * Long-lived HTTP clients shared by all checks. All clients use the same
+ * connection pool, so keep-alive connections are reused between checks. There
+ * is one client per credentials / proxy settings combination, clients, which
+ * weren't used for a while, are closed.
+ */
+@Slf4j
+@Service
+public class HttpClientPool {
+
+	public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 200;
+
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+	public static final int DEFAULT_IDLE_CONNECTION_SECONDS = 30;
+
+	/**
+	 * Client, which wasn't used for this time, is closed
+	 */
+	private static final long IDLE_CLIENT_MILLIS = 10 * 60 * 1000;
+
+	private static class PooledClient {
+
+		private final CloseableHttpClient httpClient;
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		private PooledClient(CloseableHttpClient httpClient) {
+			this.httpClient = httpClient;
+		}
+	}
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	private final ConcurrentMap<String, PooledClient> httpClients = new ConcurrentHashMap<>();
+
+	public CloseableHttpClient getHttpClient(Check check) {
+		PoolingHttpClientConnectionManager connectionManager = getConnectionManager();
+		PooledClient pooledClient = httpClients.computeIfAbsent(getKey(check), key -> {
+			log.debug("create pooled HTTP client for " + check.getUrl());
+			return new PooledClient(AbstractCheckThread.newHttpClientBuilder(check).setConnectionManager(connectionManager).setConnectionManagerShared(true).build());
+		});
+		pooledClient.lastUsed = System.currentTimeMillis();
+		return pooledClient.httpClient;
+	}
+
+	/**
+	 * Key contains credentials, so it must not be logged.
+	 */
+	static String getKey(Check check) {
+		StringBuilder key = new StringBuilder();
+		Credentials credentials = check.getCredentials();
+		if (credentials != null) {
+			key.append(credentials.getUsername()).append(':').append(credentials.getPassword()).append('@').append(HostLimiter.getHost(check.getUrl())).append(':').append(getPort(check.getUrl()));
+		}
+		key.append('|');
+		if (check.getHttpProxyUsername() != null && check.getHttpProxyPassword() != null && !check.getHttpProxyPassword().isEmpty()) {
+			key.append(check.getHttpProxyUsername()).append(':').append(check.getHttpProxyPassword()).append('@').append(check.getHttpProxyServer()).append(':')
+					.append(check.getHttpProxyPort());
+		}
+		return key.toString();
+	}
+
+	private static int getPort(String url) {
+		try {
+			return new URI(url).getPort();
+		} catch (URISyntaxException e) {
+			return -1;
+		}
+	}
+
+	private synchronized PoolingHttpClientConnectionManager getConnectionManager() {
+		if (connectionManager == null) {
+			Configuration configuration = configurationService == null ? null : configurationService.find();
+			connectionManager = new PoolingHttpClientConnectionManager();
+			connectionManager.setMaxTotal(value(configuration == null ? null : configuration.getHttpMaxConnectionsTotal(), DEFAULT_MAX_CONNECTIONS_TOTAL));
+			connectionManager.setDefaultMaxPerRoute(value(configuration == null ? null : configuration.getHttpMaxConnectionsPerRoute(), DEFAULT_MAX_CONNECTIONS_PER_ROUTE));
+			log.info("created HTTP connection pool, max total: " + connectionManager.getMaxTotal() + ", max per route: " + connectionManager.getDefaultMaxPerRoute());
+		}
+		return connectionManager;
+	}
+
+	private static int value(Integer configured, int defaultValue) {
+		if (configured == null || configured <= 0) {
+			return defaultValue;
+		}
+		return configured;
+	}
+
+	/**
+	 * Close expired and idle connections and clients, which weren't used for
+	 * a while
+	 */
+	@Scheduled(fixedDelay = 10000)
+	public void evictIdleConnections() {
+		evictIdleClients(IDLE_CLIENT_MILLIS);
+		PoolingHttpClientConnectionManager connectionManager;
+		synchronized (this) {
+			connectionManager = this.connectionManager;
+		}
+		if (connectionManager == null) {
+			return;
+		}
+		Configuration configuration = configurationService == null ? null : configurationService.find();
+		connectionManager.closeExpiredConnections();
+		connectionManager.closeIdleConnections(value(configuration == null ? null : configuration.getHttpIdleConnectionSeconds(), DEFAULT_IDLE_CONNECTION_SECONDS), TimeUnit.SECONDS);
+		if (log.isDebugEnabled()) {
+			log.debug("HTTP connection pool: " + getStatistics());
+		}
+	}
+
+	/**
+	 * Closes clients, which weren't used for maxIdleMillis. Connection manager
+	 * is shared, so it stays open.
+	 */
+	void evictIdleClients(long maxIdleMillis) {
+		long limit = System.currentTimeMillis() - maxIdleMillis;
+		httpClients.entrySet().removeIf(entry -> {
+			if (entry.getValue().lastUsed >= limit) {
+				return false;
+			}
+			close(entry.getValue().httpClient);
+			return true;
+		});
+	}
+
+	private static void close(CloseableHttpClient httpClient) {
+		try {
+			httpClient.close();
+		} catch (IOException e) {
+			log.error("Error closing HTTP client", e);
+		}
+	}
+
+	/**
+	 * @return Number of clients
+	 */
+	public int getClientCount() {
+		return httpClients.size();
+	}
+
+	/**
+	 * @return Statistics of the connection pool, null if the pool wasn't
+	 *         created yet.
+	 */
+	public synchronized PoolStats getTotalStats() {
+		if (connectionManager == null) {
+			return null;
+		}
+		return connectionManager.getTotalStats();
+	}
+
+	public String getStatistics() {
+		PoolStats stats = getTotalStats();
+		if (stats == null) {
+			return "not used yet";
+		}
+		return "leased: " + stats.getLeased() + ", available: " + stats.getAvailable() + ", pending: " + stats.getPending() + ", max: " + stats.getMax() + ", clients: "
+				+ httpClients.size();
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		for (PooledClient pooledClient : httpClients.values()) {
+			close(pooledClient.httpClient);
+		}
+		httpClients.clear();
+		if (connectionManager != null) {
+			connectionManager.shutdown();
+			connectionManager = null;
+		}
+	}
+
+	public void setConfigurationService(ConfigurationService configurationService) {
+		this.configurationService = configurationService;
+	}
+
+}
@@ -1,9 +1,8 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.net.URI;
-import java.util.HashMap;
 
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
 
 import org.springframework.stereotype.Service;
 
@@ -11,8 +10,11 @@ import org.springframework.stereotype.Service;
 public class JsonCheckService extends AbstractCheckService {
 
 	public String performCheck(Check check) {
-		AbstractSingleCheckThread thread = new JsonCheckThread(check, new HashMap<URI, Object>(), new HashMap<URI, Object>());
-		return startAndJoinThread(thread);
+		JsonCheckThread thread = new JsonCheckThread(check, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet());
+		if (checkExecutor != null) {
+			thread.setStreaming(checkExecutor.isJsonStreaming());
+		}
+		return executeCheck(CheckType.JSON, thread);
 	}
 
 }
@@ -5,7 +5,6 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.Map;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
@@ -15,16 +14,21 @@ import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
 
 import com.google.common.xml.XmlEscapers;
 import com.jayway.jsonpath.InvalidPathException;
-import com.jayway.jsonpath.JsonPath;
 
 @Slf4j
 public class JsonCheckThread extends AbstractSingleCheckThread {
 
-	public JsonCheckThread(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	/**
+	 * Simple paths are evaluated while JSON is downloaded.
+	 */
+	private boolean streaming;
+
+	public JsonCheckThread(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
 		super(check, visitedPagesGet, visitedPagesHead);
 	}
 
@@ -47,13 +51,21 @@ public class JsonCheckThread extends AbstractSingleCheckThread {
 				}
 				HttpEntity entity = httpResponse.getEntity();
 				if (entity != null) {
-					String webPage = EntityUtils.toString(entity);
+					String webPage = null;
+					if (check.isStoreWebpage() || !streaming || check.getCondition() == null || !JsonPathEvaluator.isSimplePath(check.getCondition())) {
+						webPage = EntityUtils.toString(entity);
+					}
 					if (check.isStoreWebpage()) {
 						check.setWebPage(webPage);
 					}
 					if (checkStatusCode(httpResponse, check.getUrl()) && check.getCondition() != null && !check.getCondition().isEmpty()) {
 						try {
-							Object result = JsonPath.read(webPage, check.getCondition());
+							Object result;
+							if (webPage != null) {
+								result = JsonPathEvaluator.evaluate(webPage, check.getCondition());
+							} else {
+								result = JsonPathEvaluator.evaluateStreaming(entity.getContent(), ContentType.getOrDefault(entity).getCharset(), check.getCondition());
+							}
 							if (result == null) {
 								appendMessage("null");
 							} else if (!result.toString().equals(check.getTextResult())) {
@@ -110,4 +122,8 @@ public class JsonCheckThread extends AbstractSingleCheckThread {
 		}
 	}
 
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 }
@@ -0,0 +1,176 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+/**
+ * Evaluates JsonPath expressions of JSON checks. Compiled paths are
+ * thread-safe, so they're cached by expression for all checks. Simple paths
+ * (like $.status or $.items[0].name) can be evaluated with Jackson streaming
+ * parser while the document is read, reading stops as soon as the value is
+ * found.
+ */
+public final class JsonPathEvaluator {
+
+	private static final String NAME = "[A-Za-z_][\\w\\-]*";
+
+	private static final Pattern SIMPLE_PATH = Pattern.compile("\\$(\\." + NAME + "|\\[\\d+\\])+");
+
+	private static final Pattern STEP = Pattern.compile("\\.(" + NAME + ")|\\[(\\d+)\\]");
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	static {
+		// closing response stream would download the rest of the body
+		jsonFactory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	}
+
+	private static final Cache<String, JsonPath> cache = CacheBuilder.newBuilder().maximumSize(1000).build();
+
+	private JsonPathEvaluator() {
+	}
+
+	/**
+	 * @return Compiled path, it's compiled only once.
+	 * @throws com.jayway.jsonpath.InvalidPathException
+	 *             if path is invalid
+	 */
+	public static JsonPath compile(String path) {
+		JsonPath jsonPath = cache.getIfPresent(path);
+		if (jsonPath == null) {
+			jsonPath = JsonPath.compile(path);
+			cache.put(path, jsonPath);
+		}
+		return jsonPath;
+	}
+
+	/**
+	 * @return Result of path, like {@code JsonPath.read(json, path)}.
+	 */
+	public static Object evaluate(String json, String path) {
+		return compile(path).read(json);
+	}
+
+	/**
+	 * @return true if path can be evaluated by
+	 *         {@link #evaluateStreaming(InputStream, Charset, String)}
+	 */
+	public static boolean isSimplePath(String path) {
+		return SIMPLE_PATH.matcher(path).matches();
+	}
+
+	/**
+	 * Evaluates simple path (see {@link #isSimplePath(String)}) while JSON is
+	 * read. Result is the same as the one of {@link #evaluate(String, String)}
+	 * (objects and arrays are parsed by JsonPath's provider), except for
+	 * duplicate keys, where the first one is used. Stream isn't closed.
+	 *
+	 * @param charset
+	 *            charset of the response, null if Jackson should detect it
+	 * @throws PathNotFoundException
+	 *             if there's no such value
+	 * @throws InvalidJsonException
+	 *             if JSON is invalid (like {@link #evaluate(String, String)})
+	 */
+	public static Object evaluateStreaming(InputStream json, Charset charset, String path) throws IOException {
+		List<Object> steps = new ArrayList<>();
+		Matcher matcher = STEP.matcher(path);
+		while (matcher.find()) {
+			steps.add(matcher.group(1) != null ? matcher.group(1) : Integer.valueOf(matcher.group(2)));
+		}
+		try (JsonParser parser = charset == null ? jsonFactory.createParser(json) : jsonFactory.createParser(new InputStreamReader(json, charset))) {
+			JsonToken token = parser.nextToken();
+			for (Object step : steps) {
+				if (step instanceof String) {
+					token = findProperty(parser, token, (String) step, path);
+				} else {
+					token = findIndex(parser, token, (Integer) step, path);
+				}
+			}
+			return readValue(parser, token, path);
+		} catch (JsonProcessingException e) {
+			throw new InvalidJsonException(e);
+		}
+	}
+
+	private static JsonToken findProperty(JsonParser parser, JsonToken token, String name, String path) throws IOException {
+		if (token != JsonToken.START_OBJECT) {
+			throw notFound(path);
+		}
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if (name.equals(fieldName)) {
+				return value;
+			}
+			parser.skipChildren();
+		}
+		throw notFound(path);
+	}
+
+	private static JsonToken findIndex(JsonParser parser, JsonToken token, int index, String path) throws IOException {
+		if (token != JsonToken.START_ARRAY) {
+			throw notFound(path);
+		}
+		for (int i = 0;; i++) {
+			JsonToken value = parser.nextToken();
+			if (value == JsonToken.END_ARRAY || value == null) {
+				throw notFound(path);
+			}
+			if (i == index) {
+				return value;
+			}
+			parser.skipChildren();
+		}
+	}
+
+	private static Object readValue(JsonParser parser, JsonToken token, String path) throws IOException {
+		if (token == null) {
+			throw notFound(path);
+		}
+		switch (token) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			// the same number type as JsonPath would return
+			return Configuration.defaultConfiguration().jsonProvider().parse(parser.getText());
+		default:
+			StringWriter writer = new StringWriter();
+			try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+				generator.copyCurrentStructure(parser);
+			}
+			return Configuration.defaultConfiguration().jsonProvider().parse(writer.toString());
+		}
+	}
+
+	private static PathNotFoundException notFound(String path) {
+		return new PathNotFoundException("No results for path: " + path);
+	}
+
+}
@@ -0,0 +1,162 @@
+package net.sf.sitemonitoring.service.check;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.Parser;
+
+/**
+ * Streaming reader of {@code <a href>} links in HTML page. It scans the page
+ * once and doesn't build DOM tree, so it's much cheaper than
+ * {@code Jsoup.parse(page).select("a")} on big pages. Links are resolved the
+ * same way as Jsoup's {@code absUrl("href")}. Contents of comments, scripts,
+ * styles, titles and text areas aren't searched for links.
+ */
+public class LinkExtractor {
+
+	private static final String[] RAW_TEXT_TAGS = { "script", "style", "textarea", "title" };
+
+	private final String html;
+
+	private final String baseUrl;
+
+	private int position;
+
+	public LinkExtractor(String html, String baseUrl) {
+		this.html = html;
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * @return Absolute URL of next link (empty string if it cannot be
+	 *         resolved), null at the end of the page.
+	 */
+	public String next() {
+		int length = html.length();
+		while (position < length) {
+			int tagStart = html.indexOf('<', position);
+			if (tagStart == -1) {
+				position = length;
+				return null;
+			}
+			position = tagStart + 1;
+			if (html.startsWith("!--", position)) {
+				int commentEnd = html.indexOf("-->", position + 3);
+				position = commentEnd == -1 ? length : commentEnd + 3;
+				continue;
+			}
+			if (position >= length || !Character.isLetter(html.charAt(position))) {
+				// end tag, doctype, processing instruction or just text
+				continue;
+			}
+			int nameStart = position;
+			while (position < length && !isTagNameEnd(html.charAt(position))) {
+				position++;
+			}
+			int nameLength = position - nameStart;
+			if (nameLength == 1 && (html.charAt(nameStart) == 'a' || html.charAt(nameStart) == 'A')) {
+				String href = readAttributes("href");
+				if (href != null) {
+					return StringUtil.resolve(baseUrl, Parser.unescapeEntities(href, true));
+				}
+				continue;
+			}
+			readAttributes(null);
+			for (String rawTextTag : RAW_TEXT_TAGS) {
+				if (nameLength == rawTextTag.length() && html.regionMatches(true, nameStart, rawTextTag, 0, nameLength)) {
+					skipRawText(rawTextTag);
+					break;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean isTagNameEnd(char c) {
+		return Character.isWhitespace(c) || c == '/' || c == '>';
+	}
+
+	/**
+	 * Reads attributes up to the end of the tag.
+	 *
+	 * @return Value of attribute with given name (the last one if it's there
+	 *         more than once, like in Jsoup), null if there's no such
+	 *         attribute.
+	 */
+	private String readAttributes(String attributeName) {
+		String result = null;
+		int length = html.length();
+		while (position < length) {
+			char c = html.charAt(position);
+			if (c == '>') {
+				position++;
+				return result;
+			}
+			if (Character.isWhitespace(c) || c == '/') {
+				position++;
+				continue;
+			}
+			int nameStart = position;
+			while (position < length && !isTagNameEnd(html.charAt(position)) && html.charAt(position) != '=') {
+				position++;
+			}
+			int nameEnd = position;
+			while (position < length && Character.isWhitespace(html.charAt(position))) {
+				position++;
+			}
+			String value = "";
+			if (position < length && html.charAt(position) == '=') {
+				position++;
+				while (position < length && Character.isWhitespace(html.charAt(position))) {
+					position++;
+				}
+				value = readAttributeValue();
+			}
+			if (attributeName != null && nameEnd - nameStart == attributeName.length() && html.regionMatches(true, nameStart, attributeName, 0, attributeName.length())) {
+				result = value;
+			}
+		}
+		return result;
+	}
+
+	private String readAttributeValue() {
+		int length = html.length();
+		if (position >= length) {
+			return "";
+		}
+		char quote = html.charAt(position);
+		if (quote == '"' || quote == '\'') {
+			int valueEnd = html.indexOf(quote, position + 1);
+			if (valueEnd == -1) {
+				valueEnd = length;
+			}
+			String value = html.substring(position + 1, valueEnd);
+			position = Math.min(valueEnd + 1, length);
+			return value;
+		}
+		int valueStart = position;
+		while (position < length && !Character.isWhitespace(html.charAt(position)) && html.charAt(position) != '>') {
+			position++;
+		}
+		return html.substring(valueStart, position);
+	}
+
+	/**
+	 * Moves position after end tag of element, which contains text only.
+	 */
+	private void skipRawText(String tagName) {
+		int length = html.length();
+		while (position < length) {
+			int endTag = html.indexOf("</", position);
+			if (endTag == -1) {
+				position = length;
+				return;
+			}
+			position = endTag + 2;
+			if (html.regionMatches(true, position, tagName, 0, tagName.length())) {
+				position += tagName.length();
+				readAttributes(null);
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open addressing hash set of 64-bit fingerprints (see
+ * {@link FingerprintVisitedUrlSet#fingerprint(String)}, 0 isn't used) in a
+ * memory-mapped temporary file. The operating system decides which parts of the table are in memory.
+ * Old tables are unmapped explicitly, so their files can be deleted right away
+ * (also on Windows). Not thread-safe.
+ */
+@Slf4j
+class MappedFingerprintTable {
+
+	private static final long EMPTY = 0;
+
+	/**
+	 * One mapping can have at most 2 GB.
+	 */
+	private static final long MAX_CAPACITY = Integer.MAX_VALUE / Long.BYTES;
+
+	private File file;
+
+	private MappedByteBuffer table;
+
+	private long capacity;
+
+	private int size;
+
+	MappedFingerprintTable(long expectedSize) throws IOException {
+		long capacity = 1024;
+		while (capacity < expectedSize * 2) {
+			capacity *= 2;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(long capacity) throws IOException {
+		if (capacity > MAX_CAPACITY) {
+			throw new IOException("Too many visited URLs: " + size);
+		}
+		file = File.createTempFile("sitemonitoring-visited", ".tmp");
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+			table = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity * Long.BYTES);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return true if fingerprint wasn't in the table before
+	 */
+	boolean add(long fingerprint) throws IOException {
+		if (!put(fingerprint)) {
+			return false;
+		}
+		size++;
+		if (size > capacity / 2) {
+			grow();
+		}
+		return true;
+	}
+
+	private boolean put(long fingerprint) {
+		long mask = capacity - 1;
+		long slot = mix(fingerprint) & mask;
+		while (true) {
+			long value = table.getLong((int) (slot * Long.BYTES));
+			if (value == EMPTY) {
+				table.putLong((int) (slot * Long.BYTES), fingerprint);
+				return true;
+			}
+			if (value == fingerprint) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static long mix(long fingerprint) {
+		return fingerprint ^ (fingerprint >>> 32);
+	}
+
+	private void grow() throws IOException {
+		MappedByteBuffer oldTable = table;
+		long oldCapacity = capacity;
+		File oldFile = file;
+		allocate(capacity * 2);
+		for (long slot = 0; slot < oldCapacity; slot++) {
+			long value = oldTable.getLong((int) (slot * Long.BYTES));
+			if (value != EMPTY) {
+				put(value);
+			}
+		}
+		unmap(oldTable);
+		delete(oldFile);
+		log.debug("visited URLs table resized to " + capacity);
+	}
+
+	int size() {
+		return size;
+	}
+
+	void close() {
+		if (table != null) {
+			unmap(table);
+			table = null;
+			delete(file);
+		}
+	}
+
+	private static void delete(File file) {
+		if (!file.delete()) {
+			file.deleteOnExit();
+			log.debug("cannot delete " + file + ", it will be deleted on exit");
+		}
+	}
+
+	/**
+	 * Releases mapping of the buffer now, instead of when it's garbage
+	 * collected. Buffer must not be used after that.
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			log.debug("cannot unmap visited URLs table, it will be unmapped by garbage collector", e);
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps all URLs in memory.
+ */
+public class MemoryVisitedUrlSet implements VisitedUrlSet {
+
+	private final Set<String> urls = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public boolean add(String url) {
+		return urls.add(url);
+	}
+
+	@Override
+	public int size() {
+		return urls.size();
+	}
+
+	@Override
+	public void close() {
+		urls.clear();
+	}
+
+}
@@ -15,7 +15,6 @@ import net.sf.sitemonitoring.service.SendEmailService;
 import org.primefaces.push.EventBus;
 import org.primefaces.push.EventBusFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 @Slf4j
@@ -55,66 +54,86 @@ public class MonitoringService {
 	@Autowired
 	private ConfigurationService configurationService;
 
-	@Async
-	public void startCheck(Check check, Date scheduledNextDate) {
+	@Autowired
+	private CheckRunExecutor checkRunExecutor;
+
+	/**
+	 * Queues run of the check in the pool of its type.
+	 *
+	 * @param scheduledDate
+	 *            when the check should have started, lag of the run is
+	 *            measured from it
+	 * @return true if run was queued, false if it was skipped, because the
+	 *         pool is full
+	 */
+	public boolean startCheck(Check check, Date scheduledDate, Date scheduledNextDate) {
+		return checkRunExecutor.execute(check, () -> runCheck(check, scheduledDate, scheduledNextDate), () -> checkService.dropCheck(check));
+	}
+
+	private void runCheck(Check check, Date scheduledDate, Date scheduledNextDate) {
 		log.debug("check monitoring started: " + check.getName());
-		check = checkService.startCheck(check, scheduledNextDate);
-		monitoringStarted();
-		CheckResult checkResult = new CheckResult();
-		checkResult.setCheck(check);
-		checkResult.setStartTime(new Date());
-
-		long startTime = System.nanoTime();
-		String checkResultText = null;
-
-		Configuration configuration = configurationService.find();
-		check.setUserAgent(configuration.getUserAgent());
-		check.setHttpProxyServer(configuration.getHttpProxyServer());
-		check.setHttpProxyPort(configuration.getHttpProxyPort());
-		check.setHttpProxyUsername(configuration.getHttpProxyUsername());
-		check.setHttpProxyPassword(configuration.getHttpProxyPassword());
-
-		switch (check.getType()) {
-		case SINGLE_PAGE:
-			checkResultText = singleCheckService.performCheck(check);
-			break;
-		case SITEMAP:
-			checkResultText = sitemapCheckService.performCheck(check);
-			break;
-		case SPIDER:
-			checkResultText = spiderCheckService.performCheck(check);
-			break;
-		case XML:
-			checkResultText = xmlCheckService.performCheck(check);
-			break;
-		case JSON:
-			checkResultText = jsonCheckService.performCheck(check);
-			break;
-		case XSD:
-			checkResultText = xsdCheckService.performCheck(check);
-			break;
-		default:
-			throw new UnsupportedOperationException("this check type is not supported!");
-		}
+		Check scheduledCheck = check;
+		try {
+			check = checkService.startCheck(check, scheduledNextDate);
+			monitoringStarted();
+			CheckResult checkResult = new CheckResult();
+			checkResult.setCheck(check);
+			checkResult.setStartTime(new Date());
+			checkResult.setLagMillis(Math.max(0, checkResult.getStartTime().getTime() - scheduledDate.getTime()));
+
+			long startTime = System.nanoTime();
+			String checkResultText = null;
+
+			Configuration configuration = configurationService.find();
+			check.setUserAgent(configuration.getUserAgent());
+			check.setHttpProxyServer(configuration.getHttpProxyServer());
+			check.setHttpProxyPort(configuration.getHttpProxyPort());
+			check.setHttpProxyUsername(configuration.getHttpProxyUsername());
+			check.setHttpProxyPassword(configuration.getHttpProxyPassword());
+
+			switch (check.getType()) {
+			case SINGLE_PAGE:
+				checkResultText = singleCheckService.performCheck(check);
+				break;
+			case SITEMAP:
+				checkResultText = sitemapCheckService.performCheck(check);
+				break;
+			case SPIDER:
+				checkResultText = spiderCheckService.performCheck(check);
+				break;
+			case XML:
+				checkResultText = xmlCheckService.performCheck(check);
+				break;
+			case JSON:
+				checkResultText = jsonCheckService.performCheck(check);
+				break;
+			case XSD:
+				checkResultText = xsdCheckService.performCheck(check);
+				break;
+			default:
+				throw new UnsupportedOperationException("this check type is not supported!");
+			}
 
-		checkResult.setFinishTime(new Date());
-		// time in milliseconds
-		checkResult.setResponseTime((System.nanoTime() - startTime) / 1000000);
-		if (checkResultText != null) {
-			checkResult.setDescription(checkResultText);
-			checkResult.setSuccess(false);
-			if (check.isSendEmails()) {
-				sendEmailService.sendEmail(check, checkResultText);
+			checkResult.setFinishTime(new Date());
+			// time in milliseconds
+			checkResult.setResponseTime((System.nanoTime() - startTime) / 1000000);
+			if (checkResultText != null) {
+				checkResult.setDescription(checkResultText);
+				checkResult.setSuccess(false);
+				if (check.isSendEmails()) {
+					sendEmailService.sendEmail(check, checkResultText);
+				}
+			} else {
+				checkResult.setSuccess(true);
+				sendEmailService.clearErrorCount(check.getId());
 			}
-		} else {
-			checkResult.setSuccess(true);
-			sendEmailService.clearErrorCount(check.getId());
+			checkResultRepository.save(checkResult);
+		} finally {
+			// scheduler waits for this, even if the check failed
+			checkService.finishCheck(scheduledCheck);
+			monitoringFinished();
 		}
-		checkResultRepository.save(checkResult);
-
-		checkService.finishCheck(check);
-		monitoringFinished();
-		log.debug("check monitoring finished: " + check.getName());
+		log.debug("check monitoring finished: " + scheduledCheck.getName());
 	}
 
 	public void monitoringStarted() {
@@ -0,0 +1,78 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.service.ErrorUtils;
+
+/**
+ * Keeps at most {@code size} submitted checks in flight and hands over their
+ * results in the same order in which the checks were submitted.
+ */
+@Slf4j
+public class OrderedCheckWindow {
+
+	private final Deque<Future<String>> pending = new ArrayDeque<>();
+
+	private final int size;
+
+	private final Consumer<String> consumer;
+
+	public OrderedCheckWindow(int size, Consumer<String> consumer) {
+		this.size = size;
+		this.consumer = consumer;
+	}
+
+	public void add(Future<String> future) throws InterruptedException {
+		pending.addLast(future);
+		while (pending.size() > size) {
+			takeFirst();
+		}
+	}
+
+	/**
+	 * Waits for all remaining checks.
+	 */
+	public void finish() throws InterruptedException {
+		while (!pending.isEmpty()) {
+			takeFirst();
+		}
+	}
+
+	/**
+	 * Cancels all remaining checks, their results are dropped.
+	 */
+	public void cancel() {
+		for (Future<String> future : pending) {
+			future.cancel(true);
+		}
+		pending.clear();
+	}
+
+	/**
+	 * @return true if there are checks, which weren't handed over yet
+	 */
+	public boolean isPending() {
+		return !pending.isEmpty();
+	}
+
+	/**
+	 * Waits for the oldest check and hands over its result.
+	 */
+	public void takeFirst() throws InterruptedException {
+		Future<String> future = pending.removeFirst();
+		String result;
+		try {
+			result = future.get();
+		} catch (ExecutionException e) {
+			log.error("error executing check", e.getCause());
+			result = ErrorUtils.getError(e.getCause());
+		}
+		consumer.accept(result);
+	}
+
+}
@@ -0,0 +1,133 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckCondition;
+
+import com.google.common.xml.XmlEscapers;
+
+/**
+ * One condition of web page: check's condition or one line of check's
+ * additional conditions. Line can start with "doesn't contain:", "matches:"
+ * (regular expression) or "doesn't match:", other lines (or lines starting
+ * with "contains:") are texts, which the page must contain.
+ */
+public class PageCondition {
+
+	private static final String CONTAINS_PREFIX = "contains:";
+
+	private static final String DOESNT_CONTAIN_PREFIX = "doesn't contain:";
+
+	private static final String MATCHES_PREFIX = "matches:";
+
+	private static final String DOESNT_MATCH_PREFIX = "doesn't match:";
+
+	private final CheckCondition type;
+
+	private final String value;
+
+	/**
+	 * Compiled regular expression, null if condition isn't a regular
+	 * expression or it's invalid
+	 */
+	private final Pattern pattern;
+
+	public PageCondition(CheckCondition type, String value) {
+		this.type = type;
+		this.value = value;
+		this.pattern = isRegex() ? compile(value) : null;
+	}
+
+	private static Pattern compile(String regex) {
+		try {
+			return Pattern.compile(regex);
+		} catch (PatternSyntaxException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return All conditions of check, empty list if it doesn't have any.
+	 */
+	public static List<PageCondition> of(Check check) {
+		List<PageCondition> conditions = new ArrayList<>();
+		if (check.getCondition() != null && !check.getCondition().isEmpty()) {
+			conditions.add(new PageCondition(check.getConditionType() == null ? CheckCondition.CONTAINS : check.getConditionType(), check.getCondition()));
+		}
+		if (check.getAdditionalConditions() != null) {
+			for (String line : check.getAdditionalConditions().split("\r?\n")) {
+				PageCondition condition = parse(line);
+				if (condition != null) {
+					conditions.add(condition);
+				}
+			}
+		}
+		return conditions;
+	}
+
+	/**
+	 * @return condition, null if line is empty
+	 */
+	static PageCondition parse(String line) {
+		if (line.trim().isEmpty()) {
+			return null;
+		}
+		String lowerCaseLine = line.toLowerCase();
+		if (lowerCaseLine.startsWith(DOESNT_CONTAIN_PREFIX)) {
+			return new PageCondition(CheckCondition.DOESNT_CONTAIN, line.substring(DOESNT_CONTAIN_PREFIX.length()).trim());
+		} else if (lowerCaseLine.startsWith(MATCHES_PREFIX)) {
+			return new PageCondition(CheckCondition.MATCHES, line.substring(MATCHES_PREFIX.length()).trim());
+		} else if (lowerCaseLine.startsWith(DOESNT_MATCH_PREFIX)) {
+			return new PageCondition(CheckCondition.DOESNT_MATCH, line.substring(DOESNT_MATCH_PREFIX.length()).trim());
+		} else if (lowerCaseLine.startsWith(CONTAINS_PREFIX)) {
+			return new PageCondition(CheckCondition.CONTAINS, line.substring(CONTAINS_PREFIX.length()).trim());
+		}
+		return new PageCondition(CheckCondition.CONTAINS, line.trim());
+	}
+
+	public CheckCondition getType() {
+		return type;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	public boolean isRegex() {
+		return type == CheckCondition.MATCHES || type == CheckCondition.DOESNT_MATCH;
+	}
+
+	/**
+	 * @return Regular expression, null if it's invalid
+	 */
+	public Pattern getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * @param found
+	 *            true if text was found in the page (or regular expression
+	 *            matched)
+	 * @return Error message, null if condition is met.
+	 */
+	public String evaluate(String url, boolean found) {
+		String escapedValue = XmlEscapers.xmlContentEscaper().escape(value);
+		switch (type) {
+		case CONTAINS:
+			return found ? null : url + " doesn't contain " + escapedValue;
+		case DOESNT_CONTAIN:
+			return found ? url + " contains " + escapedValue : null;
+		case MATCHES:
+			return found ? null : url + " doesn't match " + escapedValue;
+		case DOESNT_MATCH:
+			return found ? url + " matches " + escapedValue : null;
+		default:
+			throw new UnsupportedOperationException("Unknown condition: " + type);
+		}
+	}
+
+}
@@ -0,0 +1,245 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.sitemonitoring.entity.Check.CheckCondition;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.protocol.HTTP;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.xml.XmlEscapers;
+
+/**
+ * Reads response body in chunks and searches for texts of all check
+ * conditions in one pass while it's downloaded. When the web page isn't needed
+ * and all texts were found, the rest of the body isn't downloaded. Regular
+ * expressions need the whole page, so it's kept when there's any. At most
+ * maxBodySize bytes are read.
+ */
+@Slf4j
+public class ResponseBodyReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * If the rest of the body isn't longer, it's read anyway, so that the
+	 * connection can be reused.
+	 */
+	private static final long CONSUME_REMAINING_LIMIT = 64 * 1024;
+
+	private final List<PageCondition> conditions;
+
+	/**
+	 * Index of text in matcher for every condition, -1 for regular
+	 * expressions.
+	 */
+	private final int[] textIndexes;
+
+	private final AhoCorasickMatcher matcher;
+
+	private final boolean hasRegex;
+
+	private final long maxBodySize;
+
+	private boolean truncated;
+
+	private String regexWebPage;
+
+	private boolean keepWebPage;
+
+	private StringBuilder webPage;
+
+	/**
+	 * @param conditions
+	 *            conditions of the page, empty list if there's no condition
+	 * @param maxBodySize
+	 *            max. number of bytes, which are read, 0 means unlimited
+	 */
+	public ResponseBodyReader(List<PageCondition> conditions, long maxBodySize) {
+		this.conditions = conditions;
+		this.maxBodySize = maxBodySize;
+		textIndexes = new int[conditions.size()];
+		List<String> texts = new ArrayList<>();
+		boolean regex = false;
+		for (int i = 0; i < conditions.size(); i++) {
+			PageCondition condition = conditions.get(i);
+			if (condition.isRegex()) {
+				regex = true;
+				textIndexes[i] = -1;
+			} else {
+				textIndexes[i] = texts.size();
+				texts.add(condition.getValue());
+			}
+		}
+		hasRegex = regex;
+		matcher = texts.isEmpty() ? null : new AhoCorasickMatcher(texts);
+	}
+
+	/**
+	 * Reads body and searches for conditions. Response must be closed after
+	 * this method, connection is then closed if body wasn't read to the end.
+	 *
+	 * @param keepWebPage
+	 *            true if web page is needed (for example to check links),
+	 *            false if it's enough to evaluate conditions
+	 * @return Web page (beginning of it if it's longer than max. body size),
+	 *         null if keepWebPage is false
+	 */
+	public String read(HttpEntity entity, boolean keepWebPage) throws IOException {
+		if (!keepWebPage && conditions.isEmpty()) {
+			return null;
+		}
+		Charset charset = getCharset(ContentType.getOrDefault(entity).getCharset());
+		start(keepWebPage);
+		// stream isn't closed, closing it would download the rest of the body
+		CountingInputStream inputStream = new CountingInputStream(entity.getContent());
+		Reader reader = new InputStreamReader(inputStream, charset);
+		char[] buffer = new char[BUFFER_SIZE];
+		int length;
+		while ((length = reader.read(buffer)) != -1) {
+			if (!update(buffer, 0, length, inputStream.getCount())) {
+				if (!truncated) {
+					consumeShortRemainder(entity, inputStream);
+				}
+				break;
+			}
+		}
+		return finish();
+	}
+
+	/**
+	 * @return Charset of the response, default HTTP charset if it's not set
+	 */
+	static Charset getCharset(Charset charset) {
+		return charset == null ? HTTP.DEF_CONTENT_CHARSET : charset;
+	}
+
+	/**
+	 * Starts reading of the body in chunks by {@link #update(char[], int, int, long)}.
+	 *
+	 * @param keepWebPage
+	 *            true if web page is needed, false if it's enough to evaluate
+	 *            conditions
+	 */
+	void start(boolean keepWebPage) {
+		this.keepWebPage = keepWebPage;
+		webPage = keepWebPage || hasRegex ? new StringBuilder() : null;
+	}
+
+	/**
+	 * Searches for conditions in the next chunk of the body.
+	 *
+	 * @param bytesRead
+	 *            number of bytes of the body, which were read so far
+	 * @return false if the rest of the body isn't needed (all texts were
+	 *         found or the body is longer than max. body size)
+	 */
+	boolean update(char[] chunk, int offset, int length, long bytesRead) {
+		if (webPage != null) {
+			webPage.append(chunk, offset, length);
+		}
+		if (matcher != null && matcher.update(chunk, offset, length) && webPage == null) {
+			log.debug("all conditions found, rest of the body won't be downloaded");
+			return false;
+		}
+		if (maxBodySize > 0 && bytesRead >= maxBodySize) {
+			log.debug("body is longer than " + maxBodySize + " bytes, rest of it won't be downloaded");
+			truncated = true;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return Web page, which was read, null if it isn't kept
+	 */
+	String finish() {
+		if (webPage == null) {
+			return null;
+		}
+		String result = webPage.toString();
+		webPage = null;
+		if (hasRegex) {
+			regexWebPage = result;
+		}
+		return keepWebPage ? result : null;
+	}
+
+	/**
+	 * Searches for conditions in web page, which was already downloaded.
+	 */
+	public void match(String webPage) {
+		if (matcher != null) {
+			matcher.update(webPage);
+		}
+		regexWebPage = webPage;
+	}
+
+	private static void consumeShortRemainder(HttpEntity entity, CountingInputStream inputStream) throws IOException {
+		long contentLength = entity.getContentLength();
+		if (contentLength >= 0 && contentLength - inputStream.getCount() <= CONSUME_REMAINING_LIMIT) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (inputStream.read(buffer) != -1) {
+				// connection can be reused
+			}
+		}
+	}
+
+	/**
+	 * Negative conditions (doesn't contain, doesn't match) of a truncated body
+	 * cannot be verified, so they fail unless the text was found.
+	 *
+	 * @return Error messages of conditions, which weren't met (separated by
+	 *         {@code <br />}), null if all conditions were met.
+	 */
+	public String evaluate(String url) {
+		List<String> errors = new ArrayList<>();
+		for (int i = 0; i < conditions.size(); i++) {
+			PageCondition condition = conditions.get(i);
+			String error;
+			boolean found = false;
+			if (textIndexes[i] == -1) {
+				Pattern pattern = condition.getPattern();
+				if (pattern == null) {
+					error = url + " has error: invalid regular expression: " + XmlEscapers.xmlContentEscaper().escape(condition.getValue());
+				} else {
+					found = regexWebPage != null && pattern.matcher(regexWebPage).find();
+					error = condition.evaluate(url, found);
+				}
+			} else {
+				found = matcher.isFound(textIndexes[i]);
+				error = condition.evaluate(url, found);
+			}
+			if (truncated) {
+				// text or match could be in the part, which wasn't read
+				if (error != null && (condition.getType() == CheckCondition.CONTAINS || condition.getType() == CheckCondition.MATCHES)) {
+					error += " (checked first " + maxBodySize / 1024 + " kB)";
+				} else if (error == null && !found) {
+					error = url + (condition.getType() == CheckCondition.DOESNT_CONTAIN ? " may contain " : " may match ")
+							+ XmlEscapers.xmlContentEscaper().escape(condition.getValue()) + " (checked first " + maxBodySize / 1024 + " kB)";
+				}
+			}
+			if (error != null) {
+				errors.add(error);
+			}
+		}
+		return errors.isEmpty() ? null : String.join("<br />", errors);
+	}
+
+	/**
+	 * @return true if body was longer than max. body size
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+}
@@ -2,49 +2,52 @@ package net.sf.sitemonitoring.service.check;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Future;
 
-import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.service.PageValidatorService;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-@Slf4j
 @Service
 public class SinglePageCheckService extends AbstractCheckService {
 
-	public String performCheck(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
-		AbstractSingleCheckThread thread = new SinglePageCheckThread(check, visitedPagesGet, visitedPagesHead);
-		return startAndJoinThread(thread);
+	@Autowired
+	private PageValidatorService pageValidatorService;
+
+	public String performCheck(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
+		SinglePageCheckThread thread = new SinglePageCheckThread(check, visitedPagesGet, visitedPagesHead);
+		thread.setCheckExecutor(checkExecutor);
+		thread.setAsyncHttpEngine(getEnabledAsyncHttpEngine());
+		thread.setPageValidatorService(pageValidatorService);
+		return executeCheck(CheckType.SINGLE_PAGE, thread);
+	}
+
+	/**
+	 * Submits check without waiting for it, see
+	 * {@link #submitCheck(CheckType, AbstractCheckThread, Runnable)}.
+	 */
+	public Future<String> submitCheck(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead, Runnable onDone) {
+		SinglePageCheckThread thread = new SinglePageCheckThread(check, visitedPagesGet, visitedPagesHead);
+		thread.setCheckExecutor(checkExecutor);
+		thread.setAsyncHttpEngine(getEnabledAsyncHttpEngine());
+		thread.setPageValidatorService(pageValidatorService);
+		return submitCheck(CheckType.SINGLE_PAGE, thread, onDone);
 	}
 
 	public String performCheck(Check check) {
-		AbstractSingleCheckThread thread = new SinglePageCheckThread(check, new HashMap<>(), new HashMap<>());
-		return startAndJoinThread(thread);
+		return performCheck(check, VisitedUrlSet.create(0), VisitedUrlSet.create(0));
 	}
 
-	public static boolean ignoreUrl(String url, String excludedUrls) {
-		if (excludedUrls != null && !excludedUrls.isEmpty()) {
-			String[] split = excludedUrls.split("\r\n");
-			log.debug("excluded urls: " + excludedUrls);
-			for (String string : split) {
-				string = string.trim();
-				if (string.isEmpty()) {
-					continue;
-				}
+	public void setPageValidatorService(PageValidatorService pageValidatorService) {
+		this.pageValidatorService = pageValidatorService;
+	}
 
-				String pattern = string.replaceAll("\\*", "\\.\\*");
-				log.debug("test exclude pattern " + pattern + " on url: " + url);
-				if (url.matches(pattern)) {
-					log.debug("pattern matches");
-					return true;
-				} else {
-					log.debug("patern doesn't match");
-				}
-			}
-		}
-		return false;
+	public static boolean ignoreUrl(String url, String excludedUrls) {
+		UrlRuleMatcher urlRuleMatcher = UrlRuleMatcher.of(excludedUrls);
+		return urlRuleMatcher != null && urlRuleMatcher.matches(url);
 	}
 
 	public static boolean isSameDomain(String url1, String url2) {
@@ -5,33 +5,120 @@ import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.CheckType;
 import net.sf.sitemonitoring.entity.Check.HttpMethod;
+import net.sf.sitemonitoring.entity.PageValidator;
+import net.sf.sitemonitoring.service.PageValidatorService;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
-import org.apache.http.util.EntityUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
-import com.google.common.xml.XmlEscapers;
 
 @Slf4j
 public class SinglePageCheckThread extends AbstractSingleCheckThread {
 
-	public SinglePageCheckThread(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	private static final int MAX_ETAG_LENGTH = 500;
+
+	private static final int MAX_LAST_MODIFIED_LENGTH = 100;
+
+	private CheckExecutor checkExecutor;
+
+	private AsyncHttpEngine asyncHttpEngine;
+
+	private PageValidatorService pageValidatorService;
+
+	public SinglePageCheckThread(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
 		super(check, visitedPagesGet, visitedPagesHead);
 	}
 
+	private static List<String> extractLinks(String webPage, String baseUrl) {
+		List<String> links = new ArrayList<>();
+		LinkExtractor linkExtractor = new LinkExtractor(webPage, baseUrl);
+		String link;
+		while ((link = linkExtractor.next()) != null) {
+			links.add(link);
+		}
+		return links;
+	}
+
+	private void checkLinks(List<String> links) throws InterruptedException {
+		OrderedCheckWindow window = null;
+		if (asyncHttpEngine != null) {
+			window = new OrderedCheckWindow(asyncHttpEngine.getMaxRequests(), this::appendLinkResult);
+		} else if (checkExecutor != null && checkExecutor.getLinkCheckParallelism() > 1) {
+			window = new OrderedCheckWindow(checkExecutor.getLinkCheckParallelism(), this::appendLinkResult);
+		}
+		try {
+			for (String link : links) {
+				if (abort) {
+					if (window != null) {
+						window.cancel();
+					}
+					appendMessage("aborted");
+					break;
+				}
+				String url = link.trim();
+
+				if (!url.isEmpty() && !url.startsWith("mailto:") && !SinglePageCheckService.ignoreUrl(url, check.getDoNotFollowUrls())) {
+					boolean skip = false;
+					if (check.getFollowOutboundBrokenLinks() == null || !check.getFollowOutboundBrokenLinks()) {
+						if (!SinglePageCheckService.isSameDomain(url, check.getUrl())) {
+							skip = true;
+						}
+					}
+					if (!skip) {
+						Check subCheck = new Check();
+						copyConnectionSettings(check, subCheck);
+						subCheck.setId(check.getId());
+						subCheck.setUrl(url);
+						subCheck.setType(CheckType.SINGLE_PAGE);
+						subCheck.setCheckBrokenLinks(check.isCheckBrokenLinks());
+						subCheck.setSortQueryParameters(check.getSortQueryParameters());
+						subCheck.setHttpMethod(HttpMethod.HEAD);
+						log.debug("check sub-link: " + subCheck.getUrl());
+						if (asyncHttpEngine != null) {
+							window.add(asyncHttpEngine.check(subCheck, visitedPagesGet, visitedPagesHead));
+							continue;
+						}
+						SinglePageCheckThread checkThread = new SinglePageCheckThread(subCheck, visitedPagesGet, visitedPagesHead);
+						checkThread.setHttpClientPool(httpClientPool);
+						if (window == null) {
+							// sub-link is checked in the current worker thread
+							checkThread.run();
+							appendLinkResult(checkThread.getOutput());
+						} else {
+							window.add(checkExecutor.submitLinkCheck(checkThread, url));
+						}
+					}
+				}
+			}
+			if (window != null) {
+				window.finish();
+			}
+		} finally {
+			if (window != null) {
+				window.cancel();
+			}
+		}
+	}
+
+	private void appendLinkResult(String linkOutput) {
+		if (linkOutput != null && !linkOutput.trim().isEmpty()) {
+			appendMessage(check.getUrl() + " has error: " + linkOutput + "<br />");
+		}
+	}
+
 	@Override
 	public void performCheck() {
 		log.debug("start perform check");
@@ -45,75 +132,52 @@ public class SinglePageCheckThread extends AbstractSingleCheckThread {
 					checkStatusCode(httpResponse, check.getUrl());
 				}
 			} else if (check.getHttpMethod() == HttpMethod.GET) {
-				httpResponse = doGet(check.getUrl());
+				boolean needLinks = check.isStoreWebpage() || check.isCheckBrokenLinks();
+				PageValidator pageValidator = findPageValidator(needLinks);
+				httpResponse = doGet(check.getUrl(), pageValidator);
 				if (httpResponse == null) {
 					return;
 				}
 				HttpEntity entity = httpResponse.getEntity();
-				if (entity != null) {
-					String webPage = EntityUtils.toString(entity);
+				if (pageValidator != null && httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+					log.debug("page wasn't modified since the last successful check: " + check.getUrl());
+					List<String> links = PageValidatorService.getLinks(pageValidator);
+					if (check.isStoreWebpage()) {
+						check.setLinks(links);
+					}
+					if (check.isCheckBrokenLinks()) {
+						checkLinks(links);
+					}
+				} else if (entity != null) {
+					boolean statusOk = checkStatusCode(httpResponse, check.getUrl());
+					List<PageCondition> conditions = statusOk ? PageCondition.of(check) : Collections.<PageCondition> emptyList();
+					ResponseBodyReader bodyReader = new ResponseBodyReader(conditions, getMaxBodySize());
+					String webPage = bodyReader.read(entity, needLinks);
+					List<String> links = needLinks ? extractLinks(webPage, check.getUrl()) : null;
 					if (check.isStoreWebpage()) {
 						check.setWebPage(webPage);
+						check.setLinks(links);
 					}
-					if (checkStatusCode(httpResponse, check.getUrl()) && check.getCondition() != null && !check.getCondition().isEmpty()) {
-						switch (check.getConditionType()) {
-						case CONTAINS:
-							if (!webPage.contains(check.getCondition())) {
-								appendMessage(check.getUrl() + " doesn't contain " + XmlEscapers.xmlContentEscaper().escape(check.getCondition()));
-							}
-							break;
-						case DOESNT_CONTAIN:
-							if (webPage.contains(check.getCondition())) {
-								appendMessage(check.getUrl() + " contains " + XmlEscapers.xmlContentEscaper().escape(check.getCondition()));
-							}
-							break;
-						}
+					String conditionsResult = bodyReader.evaluate(check.getUrl());
+					if (conditionsResult != null) {
+						appendMessage(conditionsResult);
+					}
+					if (check.isConditionalRequest() && pageValidatorService != null) {
+						savePageValidator(httpResponse, statusOk && conditionsResult == null && !bodyReader.isTruncated(), pageValidator != null, links);
 					}
 
 					if (check.isCheckBrokenLinks()) {
-						Document document = Jsoup.parse(webPage);
-						Elements newsHeadlines = document.select("a");
-						Iterator<Element> iterator = newsHeadlines.iterator();
-						while (iterator.hasNext()) {
-							if (abort) {
-								appendMessage("aborted");
-								break;
-							}
-							Element element = iterator.next();
-							element.setBaseUri(check.getUrl());
-							String url = element.absUrl("href").trim();
-
-							if (!url.isEmpty() && !url.startsWith("mailto:") && !SinglePageCheckService.ignoreUrl(url, check.getDoNotFollowUrls())) {
-								boolean skip = false;
-								if (check.getFollowOutboundBrokenLinks() == null || !check.getFollowOutboundBrokenLinks()) {
-									if (!SinglePageCheckService.isSameDomain(url, check.getUrl())) {
-										skip = true;
-									}
-								}
-								if (!skip) {
-									Check subCheck = new Check();
-									copyConnectionSettings(check, subCheck);
-									subCheck.setId(check.getId());
-									subCheck.setUrl(url);
-									subCheck.setType(CheckType.SINGLE_PAGE);
-									subCheck.setCheckBrokenLinks(check.isCheckBrokenLinks());
-									subCheck.setHttpMethod(HttpMethod.HEAD);
-									SinglePageCheckThread checkThread = new SinglePageCheckThread(subCheck, visitedPagesGet, visitedPagesHead);
-									log.debug("check sub-link: " + subCheck.getUrl());
-									checkThread.start();
-									checkThread.join();
-									if (checkThread.getOutput() != null && !checkThread.getOutput().trim().isEmpty()) {
-										appendMessage(check.getUrl() + " has error: " + checkThread.getOutput() + "<br />");
-									}
-								}
-							}
-						}
+						checkLinks(links);
 					}
 				}
 			} else {
 				throw new UnsupportedOperationException("Unknown HTTP METHOD: " + check.getHttpMethod());
 			}
 			log.debug("check successful");
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			output = check.getUrl() + " has error: interrupted";
+			log.debug(output, ex);
 		} catch (IllegalArgumentException ex) {
 			output = check.getUrl() + " has error: incorrect URL";
 			log.debug(output, ex);
@@ -154,4 +218,70 @@ public class SinglePageCheckThread extends AbstractSingleCheckThread {
 		}
 	}
 
+	/**
+	 * @return Validators of the last successful check of this page, null if
+	 *         request shouldn't be conditional.
+	 */
+	private PageValidator findPageValidator(boolean needLinks) {
+		if (!check.isConditionalRequest() || pageValidatorService == null) {
+			return null;
+		}
+		PageValidator pageValidator = pageValidatorService.find(check.getId(), canonicalUrl(check.getUrl()));
+		if (pageValidator != null && needLinks && pageValidator.getLinks() == null) {
+			// links weren't stored, page must be parsed
+			return null;
+		}
+		return pageValidator;
+	}
+
+	/**
+	 * Stores validators of the page if it passed the check, otherwise the page
+	 * is downloaded again in the next run.
+	 */
+	private void savePageValidator(HttpResponse httpResponse, boolean passed, boolean stored, List<String> links) {
+		String etag = headerValue(httpResponse, HttpHeaders.ETAG, MAX_ETAG_LENGTH);
+		String lastModified = headerValue(httpResponse, HttpHeaders.LAST_MODIFIED, MAX_LAST_MODIFIED_LENGTH);
+		String url = canonicalUrl(check.getUrl());
+		if (passed && (etag != null || lastModified != null)) {
+			pageValidatorService.save(check.getId(), url, etag, lastModified, links);
+		} else if (stored) {
+			pageValidatorService.delete(check.getId(), url);
+		}
+	}
+
+	/**
+	 * @return Header value, null if there's no such header or if it's too long
+	 *         to be stored.
+	 */
+	private static String headerValue(HttpResponse httpResponse, String name, int maxLength) {
+		Header header = httpResponse.getFirstHeader(name);
+		if (header == null || header.getValue() == null || header.getValue().length() > maxLength) {
+			return null;
+		}
+		return header.getValue();
+	}
+
+	private long getMaxBodySize() {
+		return checkExecutor == null ? CheckExecutor.DEFAULT_MAX_BODY_SIZE_KB * 1024L : checkExecutor.getMaxBodySize();
+	}
+
+	public void setCheckExecutor(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+	}
+
+	/**
+	 * When set, pages of sitemap and spider checks are requested with
+	 * validators of the last successful check.
+	 */
+	public void setPageValidatorService(PageValidatorService pageValidatorService) {
+		this.pageValidatorService = pageValidatorService;
+	}
+
+	/**
+	 * When set, broken links are checked by non-blocking HTTP engine.
+	 */
+	public void setAsyncHttpEngine(AsyncHttpEngine asyncHttpEngine) {
+		this.asyncHttpEngine = asyncHttpEngine;
+	}
+
 }
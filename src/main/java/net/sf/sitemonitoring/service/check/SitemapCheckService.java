@@ -1,19 +1,84 @@
 package net.sf.sitemonitoring.service.check;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.event.CheckDeletedEvent;
+import net.sf.sitemonitoring.event.CheckSavedEvent;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.eventbus.Subscribe;
+
 @Service
 public class SitemapCheckService extends AbstractCheckService {
 
 	@Autowired
 	private SinglePageCheckService singlePageCheckService;
 
+	/**
+	 * States of incremental sitemap checks by check ID
+	 */
+	private final Map<Integer, SitemapHistory> histories = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		eventBus.register(this);
+	}
+
+	/**
+	 * Saved check may have different URL or options, so its history starts
+	 * again
+	 */
+	@Subscribe
+	public void checkSaved(CheckSavedEvent event) {
+		histories.remove(event.getCheckId());
+	}
+
+	@Subscribe
+	public void checkDeleted(CheckDeletedEvent event) {
+		if (event.getCheckId() == null) {
+			histories.clear();
+		} else {
+			histories.remove(event.getCheckId());
+		}
+	}
+
+	SitemapHistory getHistory(int checkId) {
+		return histories.computeIfAbsent(checkId, id -> new SitemapHistory());
+	}
+
+	int getHistoryCount() {
+		return histories.size();
+	}
+
 	public String performCheck(Check sitemapCheck) {
 		SitemapCheckThread thread = new SitemapCheckThread(singlePageCheckService, sitemapCheck);
-		return startAndJoinThread(thread);
+		if (checkExecutor != null) {
+			thread.setConcurrency(checkExecutor.getSitemapConcurrency());
+			thread.setConcurrencyPerHost(checkExecutor.getSitemapConcurrencyPerHost());
+			thread.setSitemapIndexConcurrency(checkExecutor.getSitemapIndexConcurrency());
+			thread.setCheckExecutor(checkExecutor);
+			thread.setVisitedUrlsMemoryThreshold(checkExecutor.getVisitedUrlsMemoryThreshold());
+			thread.setConditionalRequests(checkExecutor.isConditionalRequests());
+		}
+		if (Boolean.TRUE.equals(sitemapCheck.getIncrementalSitemap())) {
+			SitemapHistory history = getHistory(sitemapCheck.getId());
+			if (checkExecutor == null) {
+				thread.setHistory(history, CheckExecutor.DEFAULT_SITEMAP_FULL_SWEEP_RUNS, CheckExecutor.DEFAULT_SITEMAP_SAMPLE_PERCENT);
+			} else {
+				thread.setHistory(history, checkExecutor.getSitemapFullSweepRuns(), checkExecutor.getSitemapSamplePercent());
+			}
+		} else {
+			histories.remove(sitemapCheck.getId());
+		}
+		thread.setAsyncHttpEngine(getEnabledAsyncHttpEngine());
+		return executeCheck(CheckType.SITEMAP, thread);
 	}
 
 }
@@ -1,58 +1,74 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.zip.GZIPInputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Future;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.util.EntityUtils;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.HttpMethod;
-import net.sf.sitemonitoring.jaxb.sitemap.Url;
-import net.sf.sitemonitoring.jaxb.sitemap.Urlset;
-import net.sf.sitemonitoring.jaxb.sitemapindex.Sitemap;
-import net.sf.sitemonitoring.jaxb.sitemapindex.Sitemapindex;
 
 @Slf4j
 public class SitemapCheckThread extends AbstractCheckThread {
 
-	private static JAXBContext jaxbContextSitemap;
+	private SinglePageCheckService singlePageCheckService;
 
-	private static JAXBContext jaxbContextSitemapIndex;
+	/**
+	 * How many URLs are checked at the same time, 1 means one by one.
+	 */
+	private int concurrency = 1;
 
-	static {
-		try {
-			jaxbContextSitemap = JAXBContext.newInstance(Urlset.class, Url.class);
-		} catch (JAXBException e) {
-			log.error("Cannot create an instance of Urlset JAXBContext", e);
-		}
-		try {
-			jaxbContextSitemapIndex = JAXBContext.newInstance(Sitemapindex.class, Sitemap.class);
-		} catch (JAXBException e) {
-			log.error("Cannot create an instance of Sitemapindex JAXBContext", e);
-		}
-	}
+	private int concurrencyPerHost = CheckExecutor.DEFAULT_SITEMAP_CONCURRENCY_PER_HOST;
 
-	private SinglePageCheckService singlePageCheckService;
+	private AsyncHttpEngine asyncHttpEngine;
+
+	private CheckExecutor checkExecutor;
+
+	/**
+	 * How many visited URLs are kept in memory before they're moved to disk, 0
+	 * means they stay in memory.
+	 */
+	private int visitedUrlsMemoryThreshold;
+
+	/**
+	 * How many child sitemaps of sitemap index are downloaded and checked at
+	 * the same time, 1 means one by one.
+	 */
+	private int sitemapIndexConcurrency = 1;
+
+	/**
+	 * Shared by all child sitemaps, so the per-host limit applies to the whole
+	 * check.
+	 */
+	private HostLimiter hostLimiter;
+
+	/**
+	 * Pages are requested with validators of the last successful check (only
+	 * by blocking HTTP client).
+	 */
+	private boolean conditionalRequests;
+
+	/**
+	 * State of incremental check, null if all URLs are checked in every run.
+	 */
+	private SitemapHistory history;
+
+	private int fullSweepRuns = CheckExecutor.DEFAULT_SITEMAP_FULL_SWEEP_RUNS;
+
+	private int samplePercent = CheckExecutor.DEFAULT_SITEMAP_SAMPLE_PERCENT;
 
 	public SitemapCheckThread(SinglePageCheckService singlePageCheckService, Check check) {
 		super(check);
@@ -60,57 +76,18 @@ public class SitemapCheckThread extends AbstractCheckThread {
 	}
 	
 	/**
-	 * Determines if a byte array is compressed. The java.util.zip GZip
-	 * implementaiton does not expose the GZip header so it is difficult to determine
-	 * if a string is compressed.
-	 * 
-	 * @param bytes an array of bytes
-	 * @return true if the array is compressed or false otherwise
-	 * @throws java.io.IOException if the byte array couldn't be read
+	 * Sends request for sitemap, caller has to close the response.
 	 */
-	 public boolean isCompressed(byte[] bytes) throws IOException
-	 {
-	      if ((bytes == null) || (bytes.length < 2))
-	      {
-	           return false;
-	      }
-	      else
-	      {
-	            return ((bytes[0] == (byte) (GZIPInputStream.GZIP_MAGIC)) && (bytes[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8)));
-	      }
-	 }
-	 
-	 /**
-	  * Unzip byte array
-	  * @param bytes
-	  * @throws IOException
-	  */
-    public byte[] gunzipIt(byte[] bytes) throws IOException{
-        byte[] buffer = new byte[1024];
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try(GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(bytes))){
-           int len;
-           while ((len = gzis.read(buffer)) > 0) {
-           	out.write(buffer, 0, len);
-           }
-       }
-        return out.toByteArray();
-      }
-
-
-	protected String downloadSitemap(CloseableHttpClient httpClient, String url) throws IOException {
+	protected CloseableHttpResponse openSitemap(CloseableHttpClient httpClient, String url) throws IOException {
 		CloseableHttpResponse httpResponse = null;
+		boolean opened = false;
 		try {
-			httpResponse = httpClient.execute(new HttpGet(url));
-			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+			httpResponse = execute(httpClient, new HttpGet(url));
+			if (httpResponse.getStatusLine().getStatusCode() != 200 || httpResponse.getEntity() == null) {
 				throw new IOException();
 			}
-			HttpEntity entity = httpResponse.getEntity();
-			byte[] bytes = EntityUtils.toByteArray(entity);
-			if(isCompressed(bytes)) {
-				bytes = gunzipIt(bytes);
-			}
-			return new String(bytes);
+			opened = true;
+			return httpResponse;
 		} catch (IllegalArgumentException ex) {
 			throw new IOException("Error downloading sitemap: " + url + " incorrect URL", ex);
 		} catch (ConnectTimeoutException ex) {
@@ -132,7 +109,7 @@ public class SitemapCheckThread extends AbstractCheckThread {
 		} catch (IOException ex) {
 			throw new IOException("Error downloading sitemap: " + url + " exception: " + ex.getClass().getName(), ex);
 		} finally {
-			if (httpResponse != null) {
+			if (!opened && httpResponse != null) {
 				try {
 					httpResponse.close();
 				} catch (IOException e) {
@@ -142,75 +119,140 @@ public class SitemapCheckThread extends AbstractCheckThread {
 		}
 	}
 
-	protected Urlset readSitemap(String sitemapXml) throws JAXBException {
-		InputStream inputStream = null;
-		try {
-			inputStream = IOUtils.toInputStream(sitemapXml, "UTF-8");
-			return (Urlset) jaxbContextSitemap.createUnmarshaller().unmarshal(inputStream);
-		} catch (JAXBException e) {
-			throw new JAXBException("Error reading sitemap", e);
-		} catch (IOException e) {
-			throw new JAXBException("Cannot convert sitemap using UTF-8", e);
-		} finally {
-			if (inputStream != null) {
-				try {
-					inputStream.close();
-				} catch (IOException e) {
-					log.error("Error closing input stream", e);
-				}
-			}
+	/**
+	 * Source of URLs, which should be checked.
+	 */
+	interface UrlSource {
+
+		/**
+		 * @return Next URL, null if there are no more URLs.
+		 */
+		String next() throws XMLStreamException;
+
+		/**
+		 * @return Lastmod of the last URL returned by {@link #next()}, null
+		 *         if it's unknown.
+		 */
+		default String getLastmod() {
+			return null;
 		}
+
 	}
 
-	protected Sitemapindex readSitemapIndex(String sitemapIndexXml) throws JAXBException {
-		InputStream inputStream = null;
-		try {
-			inputStream = IOUtils.toInputStream(sitemapIndexXml, "UTF-8");
-			return (Sitemapindex) jaxbContextSitemapIndex.createUnmarshaller().unmarshal(inputStream);
-		} catch (JAXBException e) {
-			throw new JAXBException("Error reading sitemap index", e);
-		} catch (IOException e) {
-			throw new JAXBException("Cannot convert sitemap index using UTF-8", e);
-		} finally {
-			if (inputStream != null) {
-				try {
-					inputStream.close();
-				} catch (IOException e) {
-					log.error("Error closing input stream", e);
-				}
+	/**
+	 * URLs are checked while the sitemap is being read, so the sitemap isn't
+	 * kept in memory.
+	 */
+	static UrlSource urlSource(SitemapReader sitemapReader) {
+		return new UrlSource() {
+
+			@Override
+			public String next() throws XMLStreamException {
+				return sitemapReader.nextLoc();
+			}
+
+			@Override
+			public String getLastmod() {
+				return sitemapReader.getLastmod();
 			}
+		};
+	}
+
+	/**
+	 * URL of sitemap (or of child sitemap), which is being checked.
+	 */
+	private static class SitemapUrl {
+
+		private final String url;
+
+		private final String lastmod;
+
+		private SitemapUrl(String url, String lastmod) {
+			this.url = url;
+			this.lastmod = lastmod;
 		}
+
 	}
 
-	protected String check(Urlset urlset, Check sitemapCheck, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	protected String check(UrlSource urls, Check sitemapCheck, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) throws XMLStreamException {
 		StringBuilder stringBuilder = new StringBuilder();
-		for (Url url : urlset.getUrls()) {
-			if (abort) {
-				return "aborted";
+		// URLs submitted to the window, in the same order
+		Deque<SitemapUrl> urlsInFlight = new ArrayDeque<>();
+		OrderedCheckWindow window = null;
+		HostLimiter hostLimiter = null;
+		if (concurrency > 1) {
+			window = new OrderedCheckWindow(concurrency, checkResultTxt -> urlChecked(urlsInFlight.removeFirst(), checkResultTxt, stringBuilder));
+			hostLimiter = getHostLimiter();
+		}
+		int skipped = 0;
+		// conditions (and their regular expressions) are parsed once per sitemap
+		boolean hasConditions = !PageCondition.of(sitemapCheck).isEmpty();
+		try {
+			String url;
+			while ((url = urls.next()) != null) {
+				if (abort) {
+					return "aborted";
+				}
+				if (SinglePageCheckService.ignoreUrl(url, sitemapCheck.getExcludedUrls())) {
+					log.debug("ignore url: " + url);
+					continue;
+				}
+				SitemapUrl sitemapUrl = new SitemapUrl(history == null ? url.trim() : canonicalUrl(url.trim()), urls.getLastmod());
+				if (history != null && !history.shouldCheck(sitemapUrl.url, sitemapUrl.lastmod)) {
+					skipped++;
+					continue;
+				}
+				Check singleCheck = new Check();
+				copyConnectionSettings(sitemapCheck, singleCheck);
+				singleCheck.setId(sitemapCheck.getId());
+				singleCheck.setCondition(sitemapCheck.getCondition());
+				singleCheck.setConditionType(sitemapCheck.getConditionType());
+				singleCheck.setAdditionalConditions(sitemapCheck.getAdditionalConditions());
+				singleCheck.setReturnHttpCode(sitemapCheck.getReturnHttpCode());
+				singleCheck.setUrl(url.trim());
+				singleCheck.setDoNotFollowUrls(sitemapCheck.getDoNotFollowUrls());
+				singleCheck.setSortQueryParameters(sitemapCheck.getSortQueryParameters());
+				singleCheck.setCheckBrokenLinks(sitemapCheck.isCheckBrokenLinks());
+				singleCheck.setFollowOutboundBrokenLinks(sitemapCheck.getFollowOutboundBrokenLinks());
+				singleCheck.setConditionalRequest(conditionalRequests);
+				if (hasConditions || check.isCheckBrokenLinks()) {
+					singleCheck.setHttpMethod(HttpMethod.GET);
+				} else {
+					singleCheck.setHttpMethod(HttpMethod.HEAD);
+				}
+				if (window == null) {
+					urlChecked(sitemapUrl, singlePageCheckService.performCheck(singleCheck, visitedPagesGet, visitedPagesHead), stringBuilder);
+				} else if (asyncHttpEngine != null && !singleCheck.isCheckBrokenLinks()) {
+					urlsInFlight.addLast(sitemapUrl);
+					window.add(asyncHttpEngine.check(singleCheck, visitedPagesGet, visitedPagesHead, hostLimiter));
+				} else {
+					String singleCheckUrl = singleCheck.getUrl();
+					HostLimiter singleCheckHostLimiter = hostLimiter;
+					singleCheckHostLimiter.acquire(singleCheckUrl);
+					Future<String> future;
+					try {
+						future = singlePageCheckService.submitCheck(singleCheck, visitedPagesGet, visitedPagesHead, () -> singleCheckHostLimiter.release(singleCheckUrl));
+					} catch (RuntimeException ex) {
+						singleCheckHostLimiter.release(singleCheckUrl);
+						throw ex;
+					}
+					urlsInFlight.addLast(sitemapUrl);
+					window.add(future);
+				}
 			}
-			if (SinglePageCheckService.ignoreUrl(url.getLoc(), sitemapCheck.getExcludedUrls())) {
-				log.debug("ignore url: " + url.getLoc());
-				continue;
+			if (window != null) {
+				window.finish();
 			}
-			Check singleCheck = new Check();
-			copyConnectionSettings(sitemapCheck, singleCheck);
-			singleCheck.setId(sitemapCheck.getId());
-			singleCheck.setCondition(sitemapCheck.getCondition());
-			singleCheck.setConditionType(sitemapCheck.getConditionType());
-			singleCheck.setReturnHttpCode(sitemapCheck.getReturnHttpCode());
-			singleCheck.setUrl(url.getLoc().trim());
-			singleCheck.setDoNotFollowUrls(sitemapCheck.getDoNotFollowUrls());
-			singleCheck.setCheckBrokenLinks(sitemapCheck.isCheckBrokenLinks());
-			singleCheck.setFollowOutboundBrokenLinks(sitemapCheck.getFollowOutboundBrokenLinks());
-			if ((sitemapCheck.getCondition() != null && !sitemapCheck.getCondition().isEmpty()) || check.isCheckBrokenLinks()) {
-				singleCheck.setHttpMethod(HttpMethod.GET);
-			} else {
-				singleCheck.setHttpMethod(HttpMethod.HEAD);
+			if (skipped > 0) {
+				log.debug("incremental sitemap check skipped unchanged urls: " + skipped);
 			}
-			String checkResultTxt = singlePageCheckService.performCheck(singleCheck, visitedPagesGet, visitedPagesHead);
-			if (checkResultTxt != null) {
-				stringBuilder.append(checkResultTxt);
-				stringBuilder.append("<br />");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.debug("sitemap check interrupted", e);
+			return sitemapCheck.getUrl() + " has error: interrupted";
+		} finally {
+			if (window != null) {
+				window.cancel();
 			}
 		}
 		if (stringBuilder.toString().isEmpty()) {
@@ -219,38 +261,44 @@ public class SitemapCheckThread extends AbstractCheckThread {
 		return stringBuilder.toString();
 	}
 
+	private synchronized HostLimiter getHostLimiter() {
+		if (hostLimiter == null) {
+			hostLimiter = new HostLimiter(concurrencyPerHost);
+		}
+		return hostLimiter;
+	}
+
+	private void urlChecked(SitemapUrl sitemapUrl, String checkResultTxt, StringBuilder stringBuilder) {
+		if (history != null) {
+			history.checked(sitemapUrl.url, sitemapUrl.lastmod, checkResultTxt == null || checkResultTxt.isEmpty());
+		}
+		appendResult(stringBuilder, checkResultTxt);
+	}
+
+	private static void appendResult(StringBuilder stringBuilder, String checkResultTxt) {
+		if (checkResultTxt != null) {
+			stringBuilder.append(checkResultTxt);
+			stringBuilder.append("<br />");
+		}
+	}
+
 	@Override
 	public void performCheck() {
-		Map<URI, Object> visitedPagesGet = new HashMap<>();
-		Map<URI, Object> visitedPagesHead = new HashMap<>();
 		log.debug("sitemap performCheck() start");
-		try {
-			String sitemapXml = downloadSitemap(httpClient, check.getUrl());
-			if (sitemapXml.contains("</sitemapindex>")) {
-				// it's sitemapindex
-				Sitemapindex sitemapindex = readSitemapIndex(sitemapXml);
-				log.debug("sitemap index contains " + sitemapindex.getSitemaps().size() + " sitemaps");
-				StringBuilder outputStringBuilder = new StringBuilder();
-				for (Sitemap sitemap : sitemapindex.getSitemaps()) {
-					String realSitemapXml = downloadSitemap(httpClient, sitemap.getLoc());
-					Urlset urlset = readSitemap(realSitemapXml);
-					log.debug("sitemap contains " + urlset.getUrls().size() + " urls");
-					String realSitemapOutput = check(urlset, check, visitedPagesGet, visitedPagesHead);
-					if (realSitemapOutput != null) {
-						outputStringBuilder.append(realSitemapOutput);
-					}
-				}
-				if (!outputStringBuilder.toString().trim().isEmpty()) {
-					output = outputStringBuilder.toString();
-				}
+		if (history != null && history.startRun(settings(check), fullSweepRuns, samplePercent)) {
+			log.debug("incremental sitemap check, full sweep");
+		}
+		try (VisitedUrlSet visitedPagesGet = VisitedUrlSet.create(visitedUrlsMemoryThreshold);
+				VisitedUrlSet visitedPagesHead = VisitedUrlSet.create(visitedUrlsMemoryThreshold);
+				CloseableHttpResponse httpResponse = openSitemap(httpClient, check.getUrl());
+				SitemapReader sitemapReader = new SitemapReader(httpResponse.getEntity().getContent())) {
+			if (sitemapReader.isSitemapIndex()) {
+				output = checkSitemapIndex(sitemapReader, visitedPagesGet, visitedPagesHead);
 			} else {
-				// it's sitemap
-				Urlset urlset = readSitemap(sitemapXml);
-				log.debug("sitemap contains " + urlset.getUrls().size() + " urls");
-				output = check(urlset, check, visitedPagesGet, visitedPagesHead);
+				output = check(urlSource(sitemapReader), check, visitedPagesGet, visitedPagesHead);
 			}
-		} catch (JAXBException e) {
-			log.error("JAXB exception", e);
+		} catch (XMLStreamException e) {
+			log.error("XML exception", e);
 			output = "Invalid sitemap: " + check.getUrl();
 		} catch (IOException e) {
 			log.error("Error executing sitemap", e);
@@ -259,8 +307,140 @@ public class SitemapCheckThread extends AbstractCheckThread {
 		log.debug("sitemap performCheck() finish");
 	}
 
+	/**
+	 * @return Settings of the check, which affect results of its URLs
+	 */
+	private static String settings(Check check) {
+		return String.join("\n", check.getUrl(), String.valueOf(check.getCondition()), String.valueOf(check.getConditionType()),
+				String.valueOf(check.getAdditionalConditions()), String.valueOf(check.getReturnHttpCode()), String.valueOf(check.getExcludedUrls()),
+				String.valueOf(check.getDoNotFollowUrls()), String.valueOf(check.isCheckBrokenLinks()), String.valueOf(check.getFollowOutboundBrokenLinks()),
+				String.valueOf(check.getHeader()));
+	}
+
+	/**
+	 * Child sitemaps are downloaded and checked on the sitemap index pool (at
+	 * most "sitemap index concurrency" at the same time). Their outputs are
+	 * appended in the order of the sitemap index.
+	 */
+	private String checkSitemapIndex(SitemapReader sitemapReader, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) throws XMLStreamException {
+		StringBuilder outputStringBuilder = new StringBuilder();
+		// child sitemaps submitted to the window, in the same order
+		Deque<SitemapUrl> sitemapsInFlight = new ArrayDeque<>();
+		OrderedCheckWindow window = null;
+		if (checkExecutor != null && sitemapIndexConcurrency > 1) {
+			window = new OrderedCheckWindow(sitemapIndexConcurrency, realSitemapOutput -> sitemapChecked(sitemapsInFlight.removeFirst(), realSitemapOutput, outputStringBuilder));
+		}
+		try {
+			String sitemapUrl;
+			while ((sitemapUrl = sitemapReader.nextLoc()) != null) {
+				if (abort) {
+					return "aborted";
+				}
+				SitemapUrl childSitemap = new SitemapUrl(sitemapUrl, sitemapReader.getLastmod());
+				if (history != null && !history.shouldCheckSitemap(childSitemap.url, childSitemap.lastmod)) {
+					log.debug("incremental sitemap check skipped unchanged sitemap: " + sitemapUrl);
+					continue;
+				}
+				if (window == null) {
+					sitemapChecked(childSitemap, checkSitemap(sitemapUrl, visitedPagesGet, visitedPagesHead), outputStringBuilder);
+				} else {
+					String childSitemapUrl = sitemapUrl;
+					sitemapsInFlight.addLast(childSitemap);
+					window.add(checkExecutor.submitChildSitemap(() -> checkSitemap(childSitemapUrl, visitedPagesGet, visitedPagesHead)));
+				}
+			}
+			if (window != null) {
+				window.finish();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.debug("sitemap index check interrupted", e);
+			return check.getUrl() + " has error: interrupted";
+		} finally {
+			if (window != null) {
+				window.cancel();
+			}
+		}
+		if (outputStringBuilder.toString().trim().isEmpty()) {
+			return null;
+		}
+		return outputStringBuilder.toString();
+	}
+
+	private void sitemapChecked(SitemapUrl childSitemap, String realSitemapOutput, StringBuilder outputStringBuilder) {
+		if (history != null) {
+			history.sitemapChecked(childSitemap.url, childSitemap.lastmod, realSitemapOutput == null);
+		}
+		if (realSitemapOutput != null) {
+			outputStringBuilder.append(realSitemapOutput);
+		}
+	}
+
+	/**
+	 * Checks sitemap referenced from sitemap index. URLs are checked while the
+	 * sitemap is being downloaded. Errors of this sitemap don't stop checking
+	 * of the other sitemaps, they're part of the output.
+	 */
+	private String checkSitemap(String sitemapUrl, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
+		try (CloseableHttpResponse httpResponse = openSitemap(httpClient, sitemapUrl);
+				SitemapReader sitemapReader = new SitemapReader(httpResponse.getEntity().getContent())) {
+			if (sitemapReader.isSitemapIndex()) {
+				throw new XMLStreamException("Sitemap index cannot contain another sitemap index: " + sitemapUrl);
+			}
+			return check(urlSource(sitemapReader), check, visitedPagesGet, visitedPagesHead);
+		} catch (XMLStreamException e) {
+			log.error("XML exception", e);
+			return "Invalid sitemap: " + sitemapUrl + "<br />";
+		} catch (IOException e) {
+			log.error("Error executing sitemap", e);
+			return e.getMessage() + "<br />";
+		}
+	}
+
 	public void setSinglePageCheckService(SinglePageCheckService singlePageCheckService) {
 		this.singlePageCheckService = singlePageCheckService;
 	}
 
+	public void setCheckExecutor(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+	}
+
+	public void setSitemapIndexConcurrency(int sitemapIndexConcurrency) {
+		this.sitemapIndexConcurrency = sitemapIndexConcurrency;
+	}
+
+	public void setVisitedUrlsMemoryThreshold(int visitedUrlsMemoryThreshold) {
+		this.visitedUrlsMemoryThreshold = visitedUrlsMemoryThreshold;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public void setConcurrencyPerHost(int concurrencyPerHost) {
+		this.concurrencyPerHost = concurrencyPerHost;
+	}
+
+	public void setConditionalRequests(boolean conditionalRequests) {
+		this.conditionalRequests = conditionalRequests;
+	}
+
+	/**
+	 * When set, only URLs with changed lastmod and a rotating sample of the
+	 * other URLs are checked, except for every fullSweepRuns-th run.
+	 */
+	public void setHistory(SitemapHistory history, int fullSweepRuns, int samplePercent) {
+		this.history = history;
+		this.fullSweepRuns = fullSweepRuns;
+		this.samplePercent = samplePercent;
+	}
+
+	/**
+	 * When set, URLs which don't need broken links check are checked by
+	 * non-blocking HTTP engine.
+	 */
+	public void setAsyncHttpEngine(AsyncHttpEngine asyncHttpEngine) {
+		this.asyncHttpEngine = asyncHttpEngine;
+	}
+
 }
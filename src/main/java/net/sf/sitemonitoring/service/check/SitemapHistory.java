@@ -0,0 +1,197 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * State of incremental sitemap check between runs. For every URL, which passed
+ * the check, it keeps fingerprint of its lastmod (in a primitive open
+ * addressing hash table, like {@link FingerprintVisitedUrlSet}). URL is
+ * checked again only when its lastmod changed, when it failed, or when it's
+ * in the rotating sample of unchanged URLs. Child sitemap of sitemap index is
+ * skipped the same way when its lastmod didn't change and all its URLs passed.
+ * Every N-th run is a full sweep, which checks all URLs and forgets URLs,
+ * which were removed from the sitemap. State is kept only in memory, the
+ * first run after restart is a full sweep.
+ */
+public class SitemapHistory {
+
+	private static final long EMPTY = 0;
+
+	/**
+	 * URL failed, it's checked in every run until it passes.
+	 */
+	private static final long FAILED = 0;
+
+	private static final long NO_LASTMOD = 1;
+
+	private long[] keys = new long[64];
+
+	private long[] values = new long[64];
+
+	private int size;
+
+	/**
+	 * Lastmods of child sitemaps, whose URLs passed
+	 */
+	private final Map<String, String> sitemapLastmods = new HashMap<>();
+
+	/**
+	 * Settings of the check, state is cleared when they change
+	 */
+	private String settings;
+
+	private int run = -1;
+
+	private boolean fullSweep;
+
+	private int samplePercent;
+
+	/**
+	 * Starts next run.
+	 *
+	 * @param settings
+	 *            settings of the check, which affect the result of URL
+	 * @param fullSweepRuns
+	 *            every fullSweepRuns-th run checks all URLs
+	 * @param samplePercent
+	 *            how many percent of unchanged URLs are checked in every run
+	 * @return true if all URLs are checked in this run
+	 */
+	public synchronized boolean startRun(String settings, int fullSweepRuns, int samplePercent) {
+		if (!settings.equals(this.settings)) {
+			this.settings = settings;
+			run = -1;
+		}
+		run++;
+		this.samplePercent = samplePercent;
+		fullSweep = fullSweepRuns <= 1 || run % fullSweepRuns == 0;
+		if (fullSweep) {
+			keys = new long[64];
+			values = new long[64];
+			size = 0;
+			sitemapLastmods.clear();
+		}
+		return fullSweep;
+	}
+
+	/**
+	 * @return true if URL must be checked in this run
+	 */
+	public synchronized boolean shouldCheck(String url, String lastmod) {
+		if (fullSweep) {
+			return true;
+		}
+		long fingerprint = FingerprintVisitedUrlSet.fingerprint(url);
+		long value = get(fingerprint);
+		if (value == FAILED || value != lastmodValue(lastmod)) {
+			return true;
+		}
+		return isInSample(fingerprint);
+	}
+
+	/**
+	 * Records result of URL.
+	 */
+	public synchronized void checked(String url, String lastmod, boolean passed) {
+		put(FingerprintVisitedUrlSet.fingerprint(url), passed ? lastmodValue(lastmod) : FAILED);
+	}
+
+	/**
+	 * @return true if child sitemap must be downloaded in this run
+	 */
+	public synchronized boolean shouldCheckSitemap(String sitemapUrl, String lastmod) {
+		if (fullSweep || lastmod == null || !lastmod.equals(sitemapLastmods.get(sitemapUrl))) {
+			return true;
+		}
+		return isInSample(FingerprintVisitedUrlSet.fingerprint(sitemapUrl));
+	}
+
+	/**
+	 * Records result of child sitemap.
+	 *
+	 * @param passed
+	 *            true if sitemap was read and all its checked URLs passed
+	 */
+	public synchronized void sitemapChecked(String sitemapUrl, String lastmod, boolean passed) {
+		if (passed && lastmod != null) {
+			sitemapLastmods.put(sitemapUrl, lastmod);
+		} else {
+			sitemapLastmods.remove(sitemapUrl);
+		}
+	}
+
+	/**
+	 * Sample moves by samplePercent buckets in every run, so all unchanged
+	 * URLs are checked in 100 / samplePercent runs.
+	 */
+	private boolean isInSample(long fingerprint) {
+		int bucket = (int) Math.floorMod(fingerprint, 100L);
+		return Math.floorMod(bucket - (long) run * samplePercent, 100L) < samplePercent;
+	}
+
+	private static long lastmodValue(String lastmod) {
+		if (lastmod == null) {
+			return NO_LASTMOD;
+		}
+		long value = FingerprintVisitedUrlSet.fingerprint(lastmod);
+		return value == FAILED || value == NO_LASTMOD ? 2 : value;
+	}
+
+	/**
+	 * @return Number of URLs in history
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private long get(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return FAILED;
+	}
+
+	private void put(long key, long value) {
+		if (put(keys, values, key, value)) {
+			size++;
+			if (size > keys.length / 2) {
+				long[] oldKeys = keys;
+				long[] oldValues = values;
+				keys = new long[oldKeys.length * 2];
+				values = new long[oldValues.length * 2];
+				for (int i = 0; i < oldKeys.length; i++) {
+					if (oldKeys[i] != EMPTY) {
+						put(keys, values, oldKeys[i], oldValues[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if key wasn't in table
+	 */
+	private static boolean put(long[] keys, long[] values, long key, long value) {
+		int mask = keys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) & mask;
+		while (true) {
+			if (keys[slot] == EMPTY) {
+				keys[slot] = key;
+				values[slot] = value;
+				return true;
+			}
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streaming reader of sitemap and sitemap index. It reads {@code <loc>}
+ * elements one by one, so memory doesn't depend on the size of the sitemap.
+ * Gzipped sitemaps are detected and unzipped on the fly.
+ */
+@Slf4j
+public class SitemapReader implements Closeable {
+
+	private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+	static {
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	}
+
+	private final InputStream inputStream;
+
+	private final XMLStreamReader reader;
+
+	private final boolean sitemapIndex;
+
+	private String lastmod;
+
+	/**
+	 * Reads the root element, the rest of the stream is read by
+	 * {@link #nextLoc()}.
+	 *
+	 * @throws XMLStreamException
+	 *             if the stream isn't sitemap or sitemap index
+	 */
+	public SitemapReader(InputStream inputStream) throws IOException, XMLStreamException {
+		this.inputStream = unzipIfCompressed(inputStream);
+		reader = xmlInputFactory.createXMLStreamReader(this.inputStream);
+		while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+			// skip prolog
+		}
+		if (!reader.isStartElement()) {
+			throw new XMLStreamException("Sitemap doesn't have root element");
+		}
+		String rootElement = reader.getLocalName();
+		if ("sitemapindex".equals(rootElement)) {
+			sitemapIndex = true;
+		} else if ("urlset".equals(rootElement)) {
+			sitemapIndex = false;
+		} else {
+			throw new XMLStreamException("Unknown sitemap root element: " + rootElement);
+		}
+	}
+
+	static InputStream unzipIfCompressed(InputStream inputStream) throws IOException {
+		BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+		bufferedInputStream.mark(2);
+		int byte1 = bufferedInputStream.read();
+		int byte2 = bufferedInputStream.read();
+		bufferedInputStream.reset();
+		if (byte1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && byte2 == ((GZIPInputStream.GZIP_MAGIC >> 8) & 0xff)) {
+			log.debug("sitemap is compressed");
+			return new GZIPInputStream(bufferedInputStream);
+		}
+		return bufferedInputStream;
+	}
+
+	/**
+	 * @return true if it's sitemap index, false if it's sitemap
+	 */
+	public boolean isSitemapIndex() {
+		return sitemapIndex;
+	}
+
+	/**
+	 * @return Next URL (of page in sitemap, of sitemap in sitemap index), null
+	 *         at the end of the document. Its lastmod is then returned by
+	 *         {@link #getLastmod()}.
+	 */
+	public String nextLoc() throws XMLStreamException {
+		lastmod = null;
+		while (reader.hasNext()) {
+			if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+				if ("loc".equals(reader.getLocalName())) {
+					String loc = reader.getElementText().trim();
+					readSiblings();
+					return loc;
+				}
+				if ("lastmod".equals(reader.getLocalName())) {
+					// lastmod before loc
+					lastmod = reader.getElementText().trim();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the rest of {@code <url>} (or {@code <sitemap>}) element, which
+	 * contains the last {@code <loc>}.
+	 */
+	private void readSiblings() throws XMLStreamException {
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				if (depth == 0 && "lastmod".equals(reader.getLocalName())) {
+					lastmod = reader.getElementText().trim();
+				} else {
+					depth++;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 0) {
+					return;
+				}
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * @return Lastmod of the last URL returned by {@link #nextLoc()}, null if
+	 *         it doesn't have any.
+	 */
+	public String getLastmod() {
+		return lastmod;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			log.error("Error closing sitemap reader", e);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package net.sf.sitemonitoring.service.check;
 
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -13,7 +14,13 @@ public class SpiderCheckService extends AbstractCheckService {
 
 	public String performCheck(Check spiderCheck) {
 		SpiderCheckThread thread = new SpiderCheckThread(singlePageCheckService, spiderCheck);
-		return startAndJoinThread(thread);
+		if (checkExecutor != null) {
+			thread.setConcurrency(checkExecutor.getSpiderConcurrency());
+			thread.setVisitedUrlsMemoryThreshold(checkExecutor.getVisitedUrlsMemoryThreshold());
+			thread.setFrontierMemoryThreshold(checkExecutor.getFrontierMemoryThreshold());
+			thread.setConditionalRequests(checkExecutor.isConditionalRequests());
+		}
+		return executeCheck(CheckType.SPIDER, thread);
 	}
 
 }
@@ -1,129 +1,255 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.HttpMethod;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
+/**
+ * Crawls web pages under base URL. Found pages are put to a queue (crawl
+ * frontier) and checked in the order in which they were found, at most
+ * "spider concurrency" pages at the same time. Results are handed over in the
+ * same order, so the output doesn't depend on the concurrency.
+ */
 @Slf4j
 public class SpiderCheckThread extends AbstractCheckThread {
 
 	private SinglePageCheckService singlePageCheckService;
 
+	/**
+	 * How many pages are checked at the same time, 1 means one by one.
+	 */
+	private int concurrency = 1;
+
+	/**
+	 * How many visited URLs are kept in memory before they're moved to disk, 0
+	 * means they stay in memory.
+	 */
+	private int visitedUrlsMemoryThreshold;
+
+	/**
+	 * How many found pages are kept in memory before they're moved to disk, 0
+	 * means they stay in memory.
+	 */
+	private int frontierMemoryThreshold;
+
+	/**
+	 * Pages are requested with validators of the last successful check.
+	 */
+	private boolean conditionalRequests;
+
+	/**
+	 * Page found by spider.
+	 */
+	private static class SpiderPage {
+
+		private final String url;
+
+		/**
+		 * Page, which contains url
+		 */
+		private final String referer;
+
+		/**
+		 * Number of links from base URL
+		 */
+		private final int depth;
+
+		private Check check;
+
+		private SpiderPage(String url, String referer, int depth) {
+			this.url = url;
+			this.referer = referer;
+			this.depth = depth;
+		}
+
+		private SpiderPage(CrawlFrontier.Entry entry) {
+			this(entry.getUrl(), entry.getReferer(), entry.getDepth());
+		}
+
+	}
+
 	public SpiderCheckThread(SinglePageCheckService singlePageCheckService, Check spiderCheck) {
 		super(spiderCheck);
 		this.singlePageCheckService = singlePageCheckService;
 	}
 
-	protected void findUrls(String referer, String htmlPage, Map<String, String> allPages) {
+	protected List<String> findUrls(String referer, List<String> links) {
 		log.debug("find urls on this web page: " + referer);
-		if (abort) {
-			appendMessage("aborted");
-			return;
-		}
-		Document document = Jsoup.parse(htmlPage);
-		Elements newsHeadlines = document.select("a");
-		Iterator<Element> iterator = newsHeadlines.iterator();
-		while (iterator.hasNext()) {
+		List<String> urls = new ArrayList<>();
+		for (String link : links) {
 			if (abort) {
-				appendMessage("aborted");
 				break;
 			}
-			Element element = (Element) iterator.next();
-			element.setBaseUri(referer);
-//			System.out.println("base uri: "+ check.getUrl());
-//			System.out.println("referer: "+ referer);
-			String url = element.absUrl("href").trim();
+			String url = link.trim();
 			log.debug("spider check found url: " + url);
 			if (!url.toString().isEmpty() && !url.startsWith("mailto:") && !SinglePageCheckService.ignoreUrl(url, check.getDoNotFollowUrls()) && url.startsWith(check.getUrl()) && !url.equals(referer)) {
-				log.debug("spider check put to all pages url: " + url);
-				allPages.put(url, referer);
+				urls.add(url);
 			}
 		}
+		return urls;
 	}
 
-	private String checkHomepage(Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead, Map<String, String> allPages, Map<String, String> pagesVisitedBySpider) {
+	private Check createCheck(String url) {
 		Check singleCheck = new Check();
 		copyConnectionSettings(check, singleCheck);
 		singleCheck.setId(check.getId());
 		singleCheck.setCondition(check.getCondition());
 		singleCheck.setConditionType(check.getConditionType());
+		singleCheck.setAdditionalConditions(check.getAdditionalConditions());
 		singleCheck.setReturnHttpCode(check.getReturnHttpCode());
-		singleCheck.setUrl(check.getUrl());
+		singleCheck.setUrl(url);
 		singleCheck.setDoNotFollowUrls(check.getDoNotFollowUrls());
+		singleCheck.setSortQueryParameters(check.getSortQueryParameters());
 		singleCheck.setCheckBrokenLinks(check.isCheckBrokenLinks());
 		singleCheck.setStoreWebpage(true);
+		singleCheck.setConditionalRequest(conditionalRequests);
 		singleCheck.setHttpMethod(HttpMethod.GET);
-		String result = singlePageCheckService.performCheck(singleCheck, visitedPagesGet, visitedPagesHead);
-		findUrls(singleCheck.getUrl(), singleCheck.getWebPage(), allPages);
-		allPages.put(check.getUrl(), check.getUrl());
-		pagesVisitedBySpider.put(check.getUrl(), null);
-		return result;
+		return singleCheck;
+	}
+
+	/**
+	 * Puts pages found on checked page to the end of frontier (if they weren't
+	 * found before and if they are within limits).
+	 */
+	private void addFoundPages(SpiderPage page, CrawlFrontier frontier, VisitedUrlSet foundPages) throws IOException {
+		// links are set even if the page wasn't modified and wasn't downloaded
+		List<String> links = page.check.getLinks();
+		// web page isn't needed anymore
+		page.check = null;
+		if (links == null) {
+			return;
+		}
+		if (check.getSpiderMaxDepth() != null && page.depth >= check.getSpiderMaxDepth()) {
+			log.debug("max depth reached: " + page.url);
+			return;
+		}
+		for (String url : findUrls(page.url, links)) {
+			if (check.getSpiderMaxPages() != null && foundPages.size() >= check.getSpiderMaxPages()) {
+				log.debug("max pages reached");
+				return;
+			}
+			if (SinglePageCheckService.ignoreUrl(url, check.getExcludedUrls())) {
+				log.debug("ignore url: " + url);
+				continue;
+			}
+			if (foundPages.add(canonicalUrl(url))) {
+				log.debug("spider check put to frontier url: " + url);
+				frontier.add(url, page.url, page.depth + 1);
+			}
+		}
+	}
+
+	private void pageChecked(SpiderPage page, String checkResultTxt, StringBuilder stringBuilder, CrawlFrontier frontier, VisitedUrlSet foundPages) throws IOException {
+		if (checkResultTxt != null) {
+			stringBuilder.append(page.referer + " has error: " + checkResultTxt);
+			stringBuilder.append("<br />");
+		}
+		addFoundPages(page, frontier, foundPages);
 	}
 
 	@Override
 	public void performCheck() {
-		Map<URI, Object> visitedPagesGet = new HashMap<URI, Object>();
-		Map<URI, Object> visitedPagesHead = new HashMap<URI, Object>();
-		// key = page URL, value = referer (page, which contains key)
-		Map<String, String> allPages = new HashMap<String, String>();
-		Map<String, String> pagesVisitedBySpider = new HashMap<String, String>();
-
 		log.debug("spider performCheck() start");
+		try (VisitedUrlSet visitedPagesGet = VisitedUrlSet.create(visitedUrlsMemoryThreshold);
+				VisitedUrlSet visitedPagesHead = VisitedUrlSet.create(visitedUrlsMemoryThreshold);
+				VisitedUrlSet foundPages = VisitedUrlSet.create(visitedUrlsMemoryThreshold);
+				CrawlFrontier frontier = new CrawlFrontier(frontierMemoryThreshold)) {
+			crawl(visitedPagesGet, visitedPagesHead, foundPages, frontier);
+		} catch (IOException | UncheckedIOException e) {
+			log.error("Error executing spider", e);
+			output = check.getUrl() + " has error: " + e.getMessage();
+		}
+	}
 
-		String homepageResult = checkHomepage(visitedPagesGet, visitedPagesHead, allPages, pagesVisitedBySpider);
+	private void crawl(VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead, VisitedUrlSet foundPages, CrawlFrontier frontier) throws IOException {
+		// pages submitted to the window, in the same order
+		Deque<SpiderPage> pagesInFlight = new ArrayDeque<>();
 		StringBuilder stringBuilder = new StringBuilder();
+
+		SpiderPage homepage = new SpiderPage(check.getUrl(), check.getUrl(), 0);
+		homepage.check = createCheck(check.getUrl());
+		foundPages.add(canonicalUrl(check.getUrl()));
+		String homepageResult = singlePageCheckService.performCheck(homepage.check, visitedPagesGet, visitedPagesHead);
 		if (homepageResult != null && !homepageResult.isEmpty()) {
 			stringBuilder.append(homepageResult);
 		}
+		addFoundPages(homepage, frontier, foundPages);
 
-		while (pagesVisitedBySpider.size() != allPages.size()) {
-			HashSet<String> set = new HashSet<String>(allPages.keySet());
-			for (String url : set) {
+		OrderedCheckWindow window = null;
+		if (concurrency > 1) {
+			window = new OrderedCheckWindow(concurrency, checkResultTxt -> {
+				try {
+					pageChecked(pagesInFlight.removeFirst(), checkResultTxt, stringBuilder, frontier, foundPages);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+		try {
+			while (!frontier.isEmpty() || (window != null && window.isPending())) {
 				if (abort) {
 					output = "aborted";
 					return;
 				}
-				if (SinglePageCheckService.ignoreUrl(url, check.getExcludedUrls())) {
-					log.debug("ignore url: " + url);
+				CrawlFrontier.Entry entry = frontier.poll();
+				if (entry == null) {
+					// wait for pages, which can contain new links
+					window.takeFirst();
 					continue;
 				}
-				if (pagesVisitedBySpider.containsKey(url)) {
-					continue;
-				}
-				Check singleCheck = new Check();
-				singleCheck.setId(check.getId());
-				singleCheck.setCondition(check.getCondition());
-				singleCheck.setConditionType(check.getConditionType());
-				singleCheck.setReturnHttpCode(check.getReturnHttpCode());
-				singleCheck.setUrl(url);
-				singleCheck.setDoNotFollowUrls(check.getDoNotFollowUrls());
-				singleCheck.setCheckBrokenLinks(check.isCheckBrokenLinks());
-				singleCheck.setStoreWebpage(true);
-				singleCheck.setHttpMethod(HttpMethod.GET);
-				String checkResultTxt = singlePageCheckService.performCheck(singleCheck, visitedPagesGet, visitedPagesHead);
-				findUrls(url, singleCheck.getWebPage(), allPages);
-				pagesVisitedBySpider.put(singleCheck.getUrl(), null);
-				if (checkResultTxt != null) {
-					stringBuilder.append(allPages.get(url) + " has error: " + checkResultTxt);
-					stringBuilder.append("<br />");
+				SpiderPage page = new SpiderPage(entry);
+				page.check = createCheck(page.url);
+				if (window == null) {
+					String checkResultTxt = singlePageCheckService.performCheck(page.check, visitedPagesGet, visitedPagesHead);
+					pageChecked(page, checkResultTxt, stringBuilder, frontier, foundPages);
+				} else {
+					pagesInFlight.addLast(page);
+					window.add(singlePageCheckService.submitCheck(page.check, visitedPagesGet, visitedPagesHead, () -> {
+					}));
 				}
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.debug("spider check interrupted", e);
+			output = check.getUrl() + " has error: interrupted";
+			return;
+		} finally {
+			if (window != null) {
+				window.cancel();
+			}
 		}
 
 		if (stringBuilder.length() != 0) {
 			output = stringBuilder.toString();
 		}
-		log.debug("sitemap performCheck() finish");
+		log.debug("spider performCheck() finish, checked pages: " + foundPages.size());
+	}
+
+	public void setSinglePageCheckService(SinglePageCheckService singlePageCheckService) {
+		this.singlePageCheckService = singlePageCheckService;
 	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public void setVisitedUrlsMemoryThreshold(int visitedUrlsMemoryThreshold) {
+		this.visitedUrlsMemoryThreshold = visitedUrlsMemoryThreshold;
+	}
+
+	public void setFrontierMemoryThreshold(int frontierMemoryThreshold) {
+		this.frontierMemoryThreshold = frontierMemoryThreshold;
+	}
+
+	public void setConditionalRequests(boolean conditionalRequests) {
+		this.conditionalRequests = conditionalRequests;
+	}
+
 }
@@ -0,0 +1,101 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps URLs in {@link FingerprintVisitedUrlSet} until there's more than
+ * memoryThreshold of them, then moves them to {@link MappedFingerprintTable}
+ * (fingerprints in a memory-mapped temporary file). Heap usage then doesn't
+ * depend on the number of URLs. Bloom filter in memory answers most questions
+ * about new URLs, so the table on disk is mostly touched only to write them.
+ */
+@Slf4j
+public class SpillableVisitedUrlSet implements VisitedUrlSet {
+
+	private static final double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+	private final int memoryThreshold;
+
+	private FingerprintVisitedUrlSet memory = new FingerprintVisitedUrlSet();
+
+	private MappedFingerprintTable disk;
+
+	private BloomFilter<Long> bloomFilter;
+
+	public SpillableVisitedUrlSet(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+	}
+
+	@Override
+	public synchronized boolean add(String url) {
+		long fingerprint = FingerprintVisitedUrlSet.fingerprint(url);
+		try {
+			if (disk == null) {
+				if (!memory.add(fingerprint)) {
+					return false;
+				}
+				if (memory.size() > memoryThreshold) {
+					spill();
+				}
+				return true;
+			}
+			if (!bloomFilter.mightContain(fingerprint)) {
+				bloomFilter.put(fingerprint);
+				disk.add(fingerprint);
+				return true;
+			}
+			return disk.add(fingerprint);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write visited URLs to disk", e);
+		}
+	}
+
+	private void spill() throws IOException {
+		log.debug("visited URLs moved to disk, URLs in memory: " + memory.size());
+		disk = new MappedFingerprintTable(memory.size() * 4L);
+		// sized for many more URLs than there is in memory
+		bloomFilter = BloomFilter.create(Funnels.longFunnel(), (int) Math.min(Integer.MAX_VALUE, memoryThreshold * 16L), BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+		IOException[] error = new IOException[1];
+		memory.forEach(fingerprint -> {
+			try {
+				disk.add(fingerprint);
+				bloomFilter.put(fingerprint);
+			} catch (IOException e) {
+				error[0] = e;
+			}
+		});
+		if (error[0] != null) {
+			throw error[0];
+		}
+		memory = null;
+	}
+
+	/**
+	 * @return true if URLs are on disk
+	 */
+	public synchronized boolean isSpilled() {
+		return disk != null;
+	}
+
+	@Override
+	public synchronized int size() {
+		return disk == null ? memory.size() : disk.size();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (disk != null) {
+			disk.close();
+			disk = null;
+		}
+		bloomFilter = null;
+		memory = new FingerprintVisitedUrlSet();
+	}
+
+}
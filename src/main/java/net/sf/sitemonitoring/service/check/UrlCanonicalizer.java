@@ -0,0 +1,75 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Converts URL to canonical form, so that different forms of the same URL
+ * (http://X:80/./a#top and http://x/a) are visited only once. Scheme and host
+ * are lowercased, default port, fragment, empty query and dot segments are
+ * removed and empty path is replaced with "/". Order of query parameters
+ * matters for some web applications, so they're sorted only when it's
+ * requested. URLs which cannot be parsed are returned unchanged.
+ */
+public final class UrlCanonicalizer {
+
+	private UrlCanonicalizer() {
+	}
+
+	public static String canonicalize(String url) {
+		return canonicalize(url, false);
+	}
+
+	public static String canonicalize(String url, boolean sortQueryParameters) {
+		URI uri;
+		try {
+			uri = new URI(url.trim());
+		} catch (URISyntaxException e) {
+			return url;
+		}
+		if (uri.isOpaque() || uri.getScheme() == null || uri.getHost() == null) {
+			return url;
+		}
+		String scheme = uri.getScheme().toLowerCase(Locale.ENGLISH);
+		StringBuilder canonicalUrl = new StringBuilder(url.length());
+		canonicalUrl.append(scheme).append("://");
+		if (uri.getRawUserInfo() != null) {
+			canonicalUrl.append(uri.getRawUserInfo()).append('@');
+		}
+		canonicalUrl.append(uri.getHost().toLowerCase(Locale.ENGLISH));
+		int port = uri.getPort();
+		if (port != -1 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) {
+			canonicalUrl.append(':').append(port);
+		}
+		canonicalUrl.append(normalizePath(uri.normalize().getRawPath()));
+		String query = uri.getRawQuery();
+		if (query != null && !query.isEmpty()) {
+			canonicalUrl.append('?');
+			if (sortQueryParameters) {
+				String[] parameters = query.split("&");
+				Arrays.sort(parameters);
+				canonicalUrl.append(String.join("&", parameters));
+			} else {
+				canonicalUrl.append(query);
+			}
+		}
+		return canonicalUrl.toString();
+	}
+
+	private static String normalizePath(String path) {
+		if (path == null || path.isEmpty()) {
+			return "/";
+		}
+		// URI.normalize() keeps ".." segments above root
+		while (path.startsWith("/../")) {
+			path = path.substring(3);
+		}
+		if ("/..".equals(path)) {
+			return "/";
+		}
+		return path;
+	}
+
+}
@@ -0,0 +1,208 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Compiled excluded URLs / do-not-follow URLs of a check. Rules are separated
+ * by new line, asterisk means anything and the rest of the rule is a regular
+ * expression, which must match the whole URL (so dot is any character).
+ * Rules, which are just prefixes ("http://www.example.com/private/*"),
+ * suffixes ("*.pdf") or whole URLs, are put to a prefix trie or to a suffix
+ * trie, so one URL is matched against all of them in a single walk. Other
+ * rules are compiled to one regular expression. Compiled rules are cached by
+ * rule text.
+ */
+@Slf4j
+public class UrlRuleMatcher {
+
+	private static final String REGEX_METACHARACTERS = "\\^$|?+()[]{}";
+
+	private static final LoadingCache<String, UrlRuleMatcher> cache = CacheBuilder.newBuilder().maximumSize(1000).build(new CacheLoader<String, UrlRuleMatcher>() {
+		@Override
+		public UrlRuleMatcher load(String rules) {
+			return new UrlRuleMatcher(rules);
+		}
+	});
+
+	/**
+	 * Trie node, dot in rule is a transition for any character.
+	 */
+	private static class Node {
+
+		private final Map<Character, Node> children = new HashMap<>();
+
+		private Node anyChar;
+
+		/**
+		 * Rule ends here and the rest of URL can be anything.
+		 */
+		private boolean openEnd;
+
+		/**
+		 * Rule ends here and URL must end here too.
+		 */
+		private boolean end;
+
+		private Node child(char c) {
+			if (c == '.') {
+				if (anyChar == null) {
+					anyChar = new Node();
+				}
+				return anyChar;
+			}
+			Node child = children.get(c);
+			if (child == null) {
+				child = new Node();
+				children.put(c, child);
+			}
+			return child;
+		}
+
+	}
+
+	private final Node prefixes = new Node();
+
+	/**
+	 * Reversed suffix rules.
+	 */
+	private final Node suffixes = new Node();
+
+	private boolean matchesAll;
+
+	private Pattern regex;
+
+	/**
+	 * All rules as one regular expression, it's used for URLs with line
+	 * terminators, which the tries don't handle.
+	 */
+	private Pattern allRulesRegex;
+
+	/**
+	 * @return Compiled rules, null if there aren't any rules.
+	 */
+	public static UrlRuleMatcher of(String rules) {
+		if (rules == null || rules.isEmpty()) {
+			return null;
+		}
+		return cache.getUnchecked(rules);
+	}
+
+	UrlRuleMatcher(String rules) {
+		List<String> regexRules = new ArrayList<>();
+		List<String> allRules = new ArrayList<>();
+		for (String rule : rules.split("\r\n")) {
+			rule = rule.trim();
+			if (rule.isEmpty()) {
+				continue;
+			}
+			allRules.add(rule);
+			if (hasRegexMetacharacter(rule)) {
+				regexRules.add(rule);
+			} else if (rule.equals("*")) {
+				matchesAll = true;
+			} else if (rule.indexOf('*') == -1) {
+				add(prefixes, rule, false).end = true;
+			} else if (rule.indexOf('*') == rule.length() - 1) {
+				add(prefixes, rule.substring(0, rule.length() - 1), false).openEnd = true;
+			} else if (rule.lastIndexOf('*') == 0) {
+				add(suffixes, rule.substring(1), true).openEnd = true;
+			} else {
+				regexRules.add(rule);
+			}
+		}
+		regex = compile(regexRules);
+		allRulesRegex = compile(allRules);
+	}
+
+	private static boolean hasRegexMetacharacter(String rule) {
+		for (int i = 0; i < rule.length(); i++) {
+			if (REGEX_METACHARACTERS.indexOf(rule.charAt(i)) != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Node add(Node root, String rule, boolean reverse) {
+		Node node = root;
+		for (int i = 0; i < rule.length(); i++) {
+			node = node.child(rule.charAt(reverse ? rule.length() - 1 - i : i));
+		}
+		return node;
+	}
+
+	/**
+	 * Invalid rules are logged and ignored, the other rules still apply.
+	 */
+	private static Pattern compile(List<String> rules) {
+		StringBuilder pattern = new StringBuilder();
+		for (String rule : rules) {
+			String ruleRegex = "(?:" + rule.replaceAll("\\*", "\\.\\*") + ")";
+			try {
+				Pattern.compile(ruleRegex);
+			} catch (PatternSyntaxException e) {
+				log.error("invalid URL rule is ignored: " + rule, e);
+				continue;
+			}
+			if (pattern.length() != 0) {
+				pattern.append('|');
+			}
+			pattern.append(ruleRegex);
+		}
+		if (pattern.length() == 0) {
+			return null;
+		}
+		return Pattern.compile(pattern.toString());
+	}
+
+	/**
+	 * @return true if some rule matches whole URL
+	 */
+	public boolean matches(String url) {
+		if (hasLineTerminator(url)) {
+			// dot doesn't match line terminators
+			return allRulesRegex != null && allRulesRegex.matcher(url).matches();
+		}
+		if (matchesAll || matches(prefixes, url, 0, false) || matches(suffixes, url, 0, true)) {
+			return true;
+		}
+		return regex != null && regex.matcher(url).matches();
+	}
+
+	private static boolean matches(Node node, String url, int index, boolean reverse) {
+		if (node.openEnd) {
+			return true;
+		}
+		if (index == url.length()) {
+			return node.end;
+		}
+		char c = url.charAt(reverse ? url.length() - 1 - index : index);
+		Node child = node.children.get(c);
+		if (child != null && matches(child, url, index + 1, reverse)) {
+			return true;
+		}
+		return node.anyChar != null && matches(node.anyChar, url, index + 1, reverse);
+	}
+
+	private static boolean hasLineTerminator(String url) {
+		for (int i = 0; i < url.length(); i++) {
+			char c = url.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,34 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.Closeable;
+
+/**
+ * URLs already visited by a check. Checks only need "add if it isn't there
+ * yet" as a single operation, so implementations can keep URLs in a compact
+ * form. Implementations are thread-safe.
+ */
+public interface VisitedUrlSet extends Closeable {
+
+	/**
+	 * @return true if URL wasn't in the set before
+	 */
+	boolean add(String url);
+
+	int size();
+
+	@Override
+	void close();
+
+	/**
+	 * @param memoryThreshold
+	 *            how many URLs are kept in memory before the set is moved to
+	 *            disk, 0 means everything stays in memory
+	 */
+	static VisitedUrlSet create(int memoryThreshold) {
+		if (memoryThreshold <= 0) {
+			return new FingerprintVisitedUrlSet();
+		}
+		return new SpillableVisitedUrlSet(memoryThreshold);
+	}
+
+}
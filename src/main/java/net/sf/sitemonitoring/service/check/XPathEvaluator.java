@@ -0,0 +1,186 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Evaluates XPath expressions of XML checks. Factories are looked up only
+ * once. Document builders and compiled expressions aren't thread-safe, so
+ * every worker thread keeps its own. Simple paths (like /feed/entry/title or
+ * /feed/entry/@id) can be evaluated while the document is read with StAX,
+ * without DOM, reading stops at the first match.
+ */
+public final class XPathEvaluator {
+
+	private static final int MAX_EXPRESSIONS_PER_THREAD = 100;
+
+	private static final String NAME = "[A-Za-z_][\\w.\\-]*";
+
+	private static final Pattern SIMPLE_PATH = Pattern.compile("(/" + NAME + ")+(/@" + NAME + ")?");
+
+	private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+
+	private static final XPathFactory xPathFactory = XPathFactory.newInstance();
+
+	private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+	static {
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	}
+
+	private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<>();
+
+	private static final ThreadLocal<Map<String, XPathExpression>> expressions = ThreadLocal.withInitial(() -> new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+			return size() > MAX_EXPRESSIONS_PER_THREAD;
+		}
+	});
+
+	private XPathEvaluator() {
+	}
+
+	/**
+	 * Parses XML to DOM and evaluates XPath expression on it.
+	 *
+	 * @return String value of expression result.
+	 */
+	public static String evaluate(InputSource xml, String expression) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
+		Document document = getDocumentBuilder().parse(xml);
+		return compile(expression).evaluate(document);
+	}
+
+	/**
+	 * @return true if expression can be evaluated by
+	 *         {@link #evaluateStreaming(InputStream, String)}
+	 */
+	public static boolean isSimplePath(String expression) {
+		return SIMPLE_PATH.matcher(expression).matches();
+	}
+
+	/**
+	 * Evaluates simple path (see {@link #isSimplePath(String)}) while XML is
+	 * read. Result is the same as the one of DOM evaluation: text of the
+	 * first element (or value of the first attribute) in document order,
+	 * empty string if there's none. Names are compared without prefixes, like
+	 * in DOM, which isn't namespace aware.
+	 */
+	public static String evaluateStreaming(InputStream xml, String expression) throws XMLStreamException {
+		String[] steps = expression.substring(1).split("/");
+		String attribute = null;
+		int elementSteps = steps.length;
+		if (steps[steps.length - 1].startsWith("@")) {
+			attribute = steps[steps.length - 1].substring(1);
+			elementSteps--;
+		}
+		XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xml);
+		try {
+			int depth = 0;
+			// number of path steps matched by current element and its ancestors
+			int matched = 0;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					if (matched == depth && matched < elementSteps && steps[matched].equals(reader.getLocalName())) {
+						matched++;
+						if (matched == elementSteps) {
+							if (attribute == null) {
+								return readText(reader);
+							}
+							String value = readAttribute(reader, attribute);
+							if (value != null) {
+								return value;
+							}
+						}
+					}
+					depth++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (matched == depth) {
+						matched--;
+					}
+					depth--;
+				}
+			}
+			return "";
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String readAttribute(XMLStreamReader reader, String attribute) {
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			if (attribute.equals(reader.getAttributeLocalName(i))) {
+				return reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return Text of current element and all its descendants.
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				text.append(reader.getText());
+			}
+		}
+		return text.toString();
+	}
+
+	private static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+		DocumentBuilder documentBuilder = documentBuilders.get();
+		if (documentBuilder == null) {
+			synchronized (documentBuilderFactory) {
+				documentBuilder = documentBuilderFactory.newDocumentBuilder();
+			}
+			documentBuilders.set(documentBuilder);
+		} else {
+			documentBuilder.reset();
+		}
+		return documentBuilder;
+	}
+
+	static XPathExpression compile(String expression) throws XPathExpressionException {
+		Map<String, XPathExpression> compiledExpressions = expressions.get();
+		XPathExpression compiledExpression = compiledExpressions.get(expression);
+		if (compiledExpression == null) {
+			synchronized (xPathFactory) {
+				compiledExpression = xPathFactory.newXPath().compile(expression);
+			}
+			compiledExpressions.put(expression, compiledExpression);
+		}
+		return compiledExpression;
+	}
+
+}
@@ -1,9 +1,8 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.net.URI;
-import java.util.HashMap;
 
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
 
 import org.springframework.stereotype.Service;
 
@@ -11,8 +10,11 @@ import org.springframework.stereotype.Service;
 public class XmlCheckService extends AbstractCheckService {
 
 	public String performCheck(Check check) {
-		AbstractSingleCheckThread thread = new XmlCheckThread(check, new HashMap<URI, Object>(), new HashMap<URI, Object>());
-		return startAndJoinThread(thread);
+		XmlCheckThread thread = new XmlCheckThread(check, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet());
+		if (checkExecutor != null) {
+			thread.setStreaming(checkExecutor.isXmlStreaming());
+		}
+		return executeCheck(CheckType.XML, thread);
 	}
 
 }
@@ -1,35 +1,34 @@
 package net.sf.sitemonitoring.service.check;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.HttpMethod;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.util.EntityUtils;
+import org.xml.sax.InputSource;
 
 import com.google.common.xml.XmlEscapers;
 
 @Slf4j
 public class XmlCheckThread extends AbstractSingleCheckThread {
 
-	public XmlCheckThread(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	/**
+	 * Simple paths are evaluated without DOM.
+	 */
+	private boolean streaming;
+
+	public XmlCheckThread(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
 		super(check, visitedPagesGet, visitedPagesHead);
 	}
 
@@ -52,19 +51,21 @@ public class XmlCheckThread extends AbstractSingleCheckThread {
 				}
 				HttpEntity entity = httpResponse.getEntity();
 				if (entity != null) {
-					String webPage = EntityUtils.toString(entity);
+					String webPage = null;
 					if (check.isStoreWebpage()) {
+						webPage = EntityUtils.toString(entity);
 						check.setWebPage(webPage);
 					}
 					if (checkStatusCode(httpResponse, check.getUrl()) && check.getCondition() != null && !check.getCondition().isEmpty()) {
-						DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-						DocumentBuilder builder = factory.newDocumentBuilder();
-						org.w3c.dom.Document doc = builder.parse(IOUtils.toInputStream(webPage, "UTF-8"));
-						XPathFactory xPathfactory = XPathFactory.newInstance();
-						XPath xpath = xPathfactory.newXPath();
-						XPathExpression expr = xpath.compile(check.getCondition());
-						// TODO Retrieve whole XML fragment
-						String result = expr.evaluate(doc);
+						String result;
+						if (webPage != null) {
+							result = XPathEvaluator.evaluate(new InputSource(new StringReader(webPage)), check.getCondition());
+						} else if (streaming && XPathEvaluator.isSimplePath(check.getCondition())) {
+							result = XPathEvaluator.evaluateStreaming(entity.getContent(), check.getCondition());
+						} else {
+							// TODO Retrieve whole XML fragment
+							result = XPathEvaluator.evaluate(new InputSource(entity.getContent()), check.getCondition());
+						}
 						if (!result.equals(check.getTextResult())) {
 							appendMessage(check.getUrl() + " has unexpected result: " + XmlEscapers.xmlContentEscaper().escape(result) + " instead of: "
 									+ XmlEscapers.xmlContentEscaper().escape(check.getTextResult()));
@@ -115,4 +116,8 @@ public class XmlCheckThread extends AbstractSingleCheckThread {
 		}
 	}
 
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
 }
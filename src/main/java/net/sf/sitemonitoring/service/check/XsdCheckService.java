@@ -1,9 +1,8 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.net.URI;
-import java.util.HashMap;
 
 import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
 
 import org.springframework.stereotype.Service;
 
@@ -11,8 +10,8 @@ import org.springframework.stereotype.Service;
 public class XsdCheckService extends AbstractCheckService {
 
 	public String performCheck(Check check) {
-		AbstractSingleCheckThread thread = new XsdCheckThread(check, new HashMap<URI, Object>(), new HashMap<URI, Object>());
-		return startAndJoinThread(thread);
+		AbstractSingleCheckThread thread = new XsdCheckThread(check, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet());
+		return executeCheck(CheckType.XSD, thread);
 	}
 
 }
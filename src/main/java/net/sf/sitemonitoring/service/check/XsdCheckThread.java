@@ -1,35 +1,29 @@
 package net.sf.sitemonitoring.service.check;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
-import java.util.Map;
 
-import javax.xml.XMLConstants;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.sitemonitoring.entity.Check;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
-import org.apache.http.util.EntityUtils;
+import org.xml.sax.SAXException;
 
 @Slf4j
 public class XsdCheckThread extends AbstractSingleCheckThread {
 
-	public XsdCheckThread(Check check, Map<URI, Object> visitedPagesGet, Map<URI, Object> visitedPagesHead) {
+	public XsdCheckThread(Check check, VisitedUrlSet visitedPagesGet, VisitedUrlSet visitedPagesHead) {
 		super(check, visitedPagesGet, visitedPagesHead);
 	}
 
@@ -44,17 +38,8 @@ public class XsdCheckThread extends AbstractSingleCheckThread {
 			}
 			HttpEntity entity = httpResponse.getEntity();
 			if (entity != null) {
-				String webPage = EntityUtils.toString(entity);
 				if (checkStatusCode(httpResponse, check.getUrl()) && check.getCondition() != null && !check.getCondition().isEmpty()) {
-					InputStream xsdInputStream = null;
-					try {
-						xsdInputStream = FileUtils.openInputStream(new File(check.getCondition()));
-						output = validateAgainstXSD(IOUtils.toInputStream(webPage), xsdInputStream, check.getUrl(), check.getCondition());
-					} finally {
-						if (xsdInputStream != null) {
-							xsdInputStream.close();
-						}
-					}
+					output = validateAgainstXSD(entity.getContent(), check.getUrl(), check.getCondition());
 				}
 			}
 			log.debug("check successful");
@@ -98,14 +83,17 @@ public class XsdCheckThread extends AbstractSingleCheckThread {
 		}
 	}
 
-	private String validateAgainstXSD(InputStream xml, InputStream xsd, String checkUrl, String xsdFile) {
+	/**
+	 * Response body is validated while it's downloaded, so download errors
+	 * are thrown as IOException.
+	 */
+	private String validateAgainstXSD(InputStream xml, String checkUrl, String xsdFile) throws IOException {
 		try {
-			SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-			Schema schema = factory.newSchema(new StreamSource(xsd));
+			Schema schema = XsdSchemaCache.getSchema(xsdFile);
 			Validator validator = schema.newValidator();
 			validator.validate(new StreamSource(xml));
 			return null;
-		} catch (Exception ex) {
+		} catch (SAXException | RuntimeException ex) {
 			return checkUrl + " doesn't match this XSD: " + xsdFile + ", error message: " + ex.getMessage();
 		}
 	}
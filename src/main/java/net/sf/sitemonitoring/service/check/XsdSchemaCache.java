@@ -0,0 +1,84 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Compiled XSD schemas shared by all XSD checks. Schema is compiled again when
+ * last modified time or size of the file changes. {@link Schema} is
+ * thread-safe, validators created from it aren't.
+ */
+@Slf4j
+public final class XsdSchemaCache {
+
+	private static final ConcurrentMap<String, CachedSchema> schemas = new ConcurrentHashMap<>();
+
+	private static final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+	private static class CachedSchema {
+
+		private final long lastModified;
+
+		private final long length;
+
+		private final Schema schema;
+
+		private CachedSchema(long lastModified, long length, Schema schema) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.schema = schema;
+		}
+
+		private boolean isCurrent(long lastModified, long length) {
+			return this.lastModified == lastModified && this.length == length;
+		}
+
+	}
+
+	private XsdSchemaCache() {
+	}
+
+	/**
+	 * @return Compiled schema of XSD file.
+	 * @throws FileNotFoundException
+	 *             if file doesn't exist
+	 * @throws SAXException
+	 *             if it isn't valid XSD
+	 */
+	public static Schema getSchema(String path) throws FileNotFoundException, SAXException {
+		File file = new File(path);
+		CachedSchema cachedSchema = schemas.get(path);
+		if (cachedSchema != null && cachedSchema.isCurrent(file.lastModified(), file.length())) {
+			return cachedSchema.schema;
+		}
+		// only one thread compiles the same schema
+		synchronized (locks.computeIfAbsent(path, key -> new Object())) {
+			if (!file.isFile()) {
+				schemas.remove(path);
+				throw new FileNotFoundException("File '" + file + "' does not exist");
+			}
+			long lastModified = file.lastModified();
+			long length = file.length();
+			cachedSchema = schemas.get(path);
+			if (cachedSchema == null || !cachedSchema.isCurrent(lastModified, length)) {
+				log.debug("compile XSD schema: " + path);
+				SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+				cachedSchema = new CachedSchema(lastModified, length, factory.newSchema(new StreamSource(file)));
+				schemas.put(path, cachedSchema);
+			}
+			return cachedSchema.schema;
+		}
+	}
+
+}
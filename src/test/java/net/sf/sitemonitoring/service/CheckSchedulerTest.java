@@ -0,0 +1,73 @@
+package net.sf.sitemonitoring.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckSchedulerTest {
+
+	private BlockingQueue<Integer> fired;
+
+	private CheckScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		fired = new LinkedBlockingQueue<>();
+		scheduler = new CheckScheduler((checkId, fireTime) -> fired.add(checkId));
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void testFiresInOrderOfFireTime() throws Exception {
+		long now = System.currentTimeMillis();
+		scheduler.schedule(1, now + 300);
+		scheduler.schedule(2, now + 100);
+		scheduler.schedule(3, now - 1000);
+		scheduler.schedule(4, now + 200);
+		// rescheduled and cancelled
+		scheduler.schedule(4, now + 400);
+		scheduler.schedule(5, now + 50);
+		scheduler.cancel(5);
+		scheduler.start();
+		for (int checkId : Arrays.asList(3, 2, 1, 4)) {
+			assertEquals(Integer.valueOf(checkId), fired.poll(5, TimeUnit.SECONDS));
+		}
+		assertNull(fired.poll(200, TimeUnit.MILLISECONDS));
+		assertEquals(0, scheduler.size());
+	}
+
+	@Test
+	public void testFiresAtFireTime() throws Exception {
+		scheduler.start();
+		long fireTime = System.currentTimeMillis() + 200;
+		scheduler.schedule(1, fireTime);
+		assertEquals(Integer.valueOf(1), fired.poll(5, TimeUnit.SECONDS));
+		long delay = System.currentTimeMillis() - fireTime;
+		assertTrue("delay " + delay, delay >= 0 && delay < 100);
+		assertNull(scheduler.getFireTime(1));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		long now = System.currentTimeMillis();
+		scheduler.schedule(1, now + 100);
+		scheduler.schedule(2, now + 100);
+		scheduler.clear();
+		scheduler.start();
+		assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+	}
+
+}
@@ -0,0 +1,233 @@
+package net.sf.sitemonitoring.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckCondition;
+import net.sf.sitemonitoring.entity.Check.CheckState;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.entity.Check.IntervalType;
+import net.sf.sitemonitoring.repository.CheckRepository;
+import net.sf.sitemonitoring.repository.MonitoringNodeRepository;
+import net.sf.sitemonitoring.repository.NodeLeaseRepository;
+
+/**
+ * Several nodes share one in-memory HSQLDB database, every lease update is
+ * committed on its own (there's no test transaction).
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ClusterServiceTest {
+
+	private static final int SHARDS = 12;
+
+	@Autowired
+	private MonitoringNodeRepository monitoringNodeRepository;
+
+	@Autowired
+	private NodeLeaseRepository nodeLeaseRepository;
+
+	@Autowired
+	private CheckRepository checkRepository;
+
+	/**
+	 * Time, which passed in the test
+	 */
+	private final AtomicLong timeShift = new AtomicLong();
+
+	@Before
+	public void setUp() {
+		checkRepository.deleteAll();
+		nodeLeaseRepository.deleteAll();
+		monitoringNodeRepository.deleteAll();
+	}
+
+	private ClusterService node(String nodeId, boolean realTime) {
+		ClusterService clusterService = new ClusterService();
+		clusterService.setEnabled(true);
+		clusterService.setNodeId(nodeId);
+		clusterService.setShards(SHARDS);
+		clusterService.setLeaseSeconds(30);
+		clusterService.setMonitoringNodeRepository(monitoringNodeRepository);
+		clusterService.setNodeLeaseRepository(nodeLeaseRepository);
+		if (!realTime) {
+			clusterService.setTimeShift(timeShift::get);
+		}
+		return clusterService;
+	}
+
+	private void rounds(int rounds, List<ClusterService> nodes) {
+		for (int i = 0; i < rounds; i++) {
+			timeShift.addAndGet(10000);
+			for (ClusterService node : nodes) {
+				node.heartbeat();
+			}
+		}
+	}
+
+	/**
+	 * Every check is run by exactly one node and every node has its fair
+	 * share.
+	 */
+	private static void assertBalanced(List<ClusterService> nodes) {
+		Set<Integer> allShards = new HashSet<>();
+		for (ClusterService node : nodes) {
+			Set<Integer> shards = node.getOwnedShards();
+			assertTrue(node.getNodeId() + " " + shards, shards.size() <= (SHARDS + nodes.size() - 1) / nodes.size());
+			for (int shard : shards) {
+				assertTrue("shard " + shard + " owned twice", allShards.add(shard));
+			}
+		}
+		assertEquals(SHARDS, allShards.size());
+		for (int checkId = 1; checkId <= 100; checkId++) {
+			int owners = 0;
+			for (ClusterService node : nodes) {
+				if (node.isOwned(checkId)) {
+					owners++;
+				}
+			}
+			assertEquals("check " + checkId, 1, owners);
+		}
+	}
+
+	private static void assertDisjoint(List<ClusterService> nodes) {
+		Set<Integer> allShards = new HashSet<>();
+		for (ClusterService node : nodes) {
+			for (int shard : node.getOwnedShards()) {
+				assertTrue("shard " + shard + " owned twice", allShards.add(shard));
+			}
+		}
+	}
+
+	@Test
+	public void testNodesJoinAndDie() {
+		ClusterService a = node("a", false);
+		ClusterService b = node("b", false);
+		ClusterService c = node("c", false);
+
+		a.heartbeat();
+		assertBalanced(Arrays.asList(a));
+
+		// b joins, a releases half of the shards and b claims them
+		b.heartbeat();
+		assertDisjoint(Arrays.asList(a, b));
+		rounds(2, Arrays.asList(a, b));
+		assertBalanced(Arrays.asList(a, b));
+		assertEquals(6, b.getOwnedShards().size());
+
+		c.heartbeat();
+		rounds(2, Arrays.asList(a, b, c));
+		assertBalanced(Arrays.asList(a, b, c));
+		assertEquals(4, c.getOwnedShards().size());
+
+		// c dies, its shards are taken over when its leases expire
+		Set<Integer> shardsOfC = c.getOwnedShards();
+		timeShift.addAndGet(5000);
+		a.heartbeat();
+		b.heartbeat();
+		assertDisjoint(Arrays.asList(a, b, c));
+		rounds(4, Arrays.asList(a, b));
+		assertFalse(c.isOwned(shardsOfC.iterator().next()));
+		assertBalanced(Arrays.asList(a, b));
+
+		// b leaves, a takes over its shards immediately
+		b.leave();
+		a.heartbeat();
+		assertBalanced(Arrays.asList(a));
+	}
+
+	@Test
+	public void testDisabled() {
+		ClusterService clusterService = node("a", false);
+		clusterService.setEnabled(false);
+		clusterService.heartbeat();
+		assertTrue(clusterService.isOwned(1));
+		assertEquals(0, nodeLeaseRepository.count());
+	}
+
+	@Test
+	public void testConcurrentNodes() throws Exception {
+		List<ClusterService> nodes = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			nodes.add(node("node-" + i, true));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+		try {
+			for (int round = 0; round < 6; round++) {
+				List<Future<?>> futures = new ArrayList<>();
+				for (ClusterService node : nodes) {
+					futures.add(executor.submit(node::heartbeat));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+				assertDisjoint(nodes);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertBalanced(nodes);
+	}
+
+	private Check runningCheck() {
+		Check check = new Check();
+		check.setName("check");
+		check.setUrl("http://localhost/");
+		check.setType(CheckType.SINGLE_PAGE);
+		check.setConditionType(CheckCondition.CONTAINS);
+		check.setCheckState(CheckState.RUNNING);
+		check.setScheduledStartDate(new Date());
+		check.setScheduledIntervalType(IntervalType.MINUTE);
+		check.setChartPeriodType(IntervalType.DAY);
+		check.setKeepResultType(IntervalType.DAY);
+		return checkRepository.save(check);
+	}
+
+	@Test
+	public void testResetOrphanedChecks() {
+		List<Check> checks = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			checks.add(runningCheck());
+		}
+		ClusterService a = node("a", true);
+		a.setShards(SHARDS / 2);
+		a.heartbeat();
+		// other half of the shards is free
+		nodeLeaseRepository.create(SHARDS - 1);
+		Set<Integer> shardsOfA = a.getOwnedShards();
+
+		// b restarts, checks of shards without a live node aren't running
+		ClusterService b = node("b", true);
+		assertEquals(SHARDS / 2, checkRepository.resetOrphanedChecks(SHARDS, b.getNodeId()));
+		for (Check check : checks) {
+			CheckState state = checkRepository.findOne(check.getId()).getCheckState();
+			assertEquals("check " + check.getId(), shardsOfA.contains(b.getShard(check.getId())) ? CheckState.RUNNING : CheckState.NOT_RUNNING, state);
+		}
+		// restarted a resets its own checks
+		assertEquals(SHARDS / 2, checkRepository.resetOrphanedChecks(SHARDS, a.getNodeId()));
+	}
+
+}
@@ -1,7 +1,12 @@
 package net.sf.sitemonitoring.service;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -9,11 +14,16 @@ import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.CheckState;
+import net.sf.sitemonitoring.entity.Check.IntervalType;
 import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.event.CheckFinishedEvent;
+import net.sf.sitemonitoring.event.CheckStartNowEvent;
+import net.sf.sitemonitoring.service.check.MonitoringService;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -30,12 +40,21 @@ public class SchedulingServiceTest {
 	@Mock
 	private CheckResultService checkResultService;
 
+	@Mock
+	private MonitoringService monitoringService;
+
+	@Mock
+	private ClusterService clusterService;
+
 	@Before
 	public void setUp() {
 		schedulingService = new SchedulingService();
 		schedulingService.setCheckService(checkService);
 		schedulingService.setConfigurationService(configurationService);
 		schedulingService.setCheckResultService(checkResultService);
+		schedulingService.setMonitoringService(monitoringService);
+		schedulingService.setClusterService(clusterService);
+		Mockito.lenient().when(clusterService.isOwned(Mockito.anyInt())).thenReturn(true);
 	}
 
 	@Test
@@ -107,4 +126,142 @@ public class SchedulingServiceTest {
 		Mockito.verify(checkResultService, Mockito.times(0)).deleteOld(Mockito.eq(4), Mockito.any(Date.class));
 	}
 
+	@Test
+	public void testFire() {
+		Check check = new Check();
+		check.setId(1);
+		check.setScheduledStartDate(new Date(System.currentTimeMillis() - 1000));
+		check.setScheduledIntervalType(IntervalType.MINUTE);
+		check.setScheduledInterval(5);
+		Mockito.when(checkService.findOne(1)).thenReturn(check);
+		Mockito.when(monitoringService.startCheck(Mockito.eq(check), Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(true);
+		long before = System.currentTimeMillis();
+		schedulingService.fire(1, check.getScheduledStartDate().getTime());
+		long fireTime = schedulingService.getScheduler().getFireTime(1);
+		assertEquals(5 * 60 * 1000, fireTime - before, 1000);
+		// lag is measured from the start date
+		Mockito.verify(monitoringService).startCheck(check, check.getScheduledStartDate(), new Date(fireTime));
+
+		// still running, it starts again when it finishes
+		check.setScheduledNextDate(new Date(before - 1));
+		schedulingService.fire(1, before - 1);
+		Mockito.verify(monitoringService, Mockito.times(1)).startCheck(Mockito.any(Check.class), Mockito.any(Date.class), Mockito.any(Date.class));
+		schedulingService.checkFinished(new CheckFinishedEvent(1));
+		assertEquals(before, schedulingService.getScheduler().getFireTime(1), 1000);
+		schedulingService.fire(1, schedulingService.getScheduler().getFireTime(1));
+		Mockito.verify(monitoringService, Mockito.times(2)).startCheck(Mockito.any(Check.class), Mockito.any(Date.class), Mockito.any(Date.class));
+	}
+
+	@Test
+	public void testFireStartNow() {
+		Check check = new Check();
+		check.setId(1);
+		// start now clears the next date, start date is long ago
+		check.setScheduledStartDate(new Date(System.currentTimeMillis() - 3600000));
+		check.setScheduledIntervalType(IntervalType.DAY);
+		check.setScheduledInterval(1);
+		Mockito.when(checkService.findOne(1)).thenReturn(check);
+		Mockito.when(monitoringService.startCheck(Mockito.eq(check), Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(true);
+		long now = System.currentTimeMillis();
+		schedulingService.checkStartNow(new CheckStartNowEvent(1));
+		schedulingService.fire(1, schedulingService.getScheduler().getFireTime(1));
+		// lag is measured from the time it was started manually
+		ArgumentCaptor<Date> scheduledDate = ArgumentCaptor.forClass(Date.class);
+		Mockito.verify(monitoringService).startCheck(Mockito.eq(check), scheduledDate.capture(), Mockito.any(Date.class));
+		assertEquals(now, scheduledDate.getValue().getTime(), 1000);
+	}
+
+	@Test
+	public void testFireSkipped() {
+		Check check = new Check();
+		check.setId(1);
+		check.setScheduledStartDate(new Date(System.currentTimeMillis() - 1000));
+		check.setScheduledIntervalType(IntervalType.MINUTE);
+		check.setScheduledInterval(5);
+		Mockito.when(checkService.findOne(1)).thenReturn(check);
+		// pool is full
+		Mockito.when(monitoringService.startCheck(Mockito.eq(check), Mockito.any(Date.class), Mockito.any(Date.class))).thenReturn(false);
+		schedulingService.fire(1, System.currentTimeMillis());
+		// it isn't considered running
+		schedulingService.fire(1, System.currentTimeMillis());
+		Mockito.verify(monitoringService, Mockito.times(2)).startCheck(Mockito.any(Check.class), Mockito.any(Date.class), Mockito.any(Date.class));
+	}
+
+	@Test
+	public void testFireNotDue() {
+		Check check = new Check();
+		check.setId(1);
+		check.setScheduledStartDate(new Date(System.currentTimeMillis() + 60000));
+		Mockito.when(checkService.findOne(1)).thenReturn(check);
+		Mockito.when(checkService.findOne(2)).thenReturn(null);
+		schedulingService.fire(1, System.currentTimeMillis());
+		schedulingService.fire(2, System.currentTimeMillis());
+		assertEquals(check.getScheduledStartDate().getTime(), (long) schedulingService.getScheduler().getFireTime(1));
+		assertNull(schedulingService.getScheduler().getFireTime(2));
+		Mockito.verifyZeroInteractions(monitoringService);
+	}
+
+	@Test
+	public void testSpreadNextDate() {
+		long interval = 60000;
+		Date now = new Date();
+		List<Long> phases = new ArrayList<>();
+		for (int id = 1; id <= 20; id++) {
+			Check check = new Check();
+			check.setId(id);
+			check.setScheduledIntervalType(IntervalType.MINUTE);
+			check.setScheduledInterval(1);
+			Date next = SchedulingService.getSpreadNextDate(check, now);
+			long delay = next.getTime() - now.getTime();
+			assertTrue("delay " + delay, delay >= interval / 2 && delay <= interval * 3 / 2);
+			// next run started on time keeps the phase
+			assertEquals(next.getTime() + interval, SchedulingService.getSpreadNextDate(check, next).getTime());
+			// and so does a late one
+			assertEquals(next.getTime() + interval, SchedulingService.getSpreadNextDate(check, new Date(next.getTime() + 5000)).getTime());
+			phases.add(next.getTime() % interval);
+		}
+		Collections.sort(phases);
+		for (int i = 1; i < phases.size(); i++) {
+			// 20 checks are at least 1/3 of even gap (3 s) apart
+			assertTrue(phases.get(i) - phases.get(i - 1) >= 1000);
+		}
+	}
+
+	@Test
+	public void testSpreadNextDateMonth() {
+		Check check = new Check();
+		check.setId(1);
+		check.setScheduledIntervalType(IntervalType.MONTH);
+		check.setScheduledInterval(1);
+		Date now = new Date();
+		assertEquals(SchedulingService.getNextDate(check, now), SchedulingService.getSpreadNextDate(check, now));
+	}
+
+	@Test
+	public void testFireClusterMode() {
+		Check check = new Check();
+		check.setId(1);
+		check.setScheduledStartDate(new Date(System.currentTimeMillis() - 1000));
+		check.setScheduledIntervalType(IntervalType.MINUTE);
+		check.setScheduledInterval(5);
+		Mockito.when(checkService.findOne(1)).thenReturn(check);
+		Mockito.when(clusterService.isEnabled()).thenReturn(true);
+
+		// shard of other node
+		Mockito.when(clusterService.isOwned(1)).thenReturn(false);
+		schedulingService.fire(1, System.currentTimeMillis());
+		assertNull(schedulingService.getScheduler().getFireTime(1));
+
+		// previous owner is still running it
+		Mockito.when(clusterService.isOwned(1)).thenReturn(true);
+		check.setCheckState(CheckState.RUNNING);
+		check.setStartDate(new Date());
+		Configuration configuration = new Configuration();
+		configuration.setTooLongRunningCheckMinutes(30);
+		Mockito.when(configurationService.find()).thenReturn(configuration);
+		schedulingService.fire(1, System.currentTimeMillis());
+		assertEquals(System.currentTimeMillis() + 3000, schedulingService.getScheduler().getFireTime(1), 1000);
+		Mockito.verifyZeroInteractions(monitoringService);
+	}
+
 }
@@ -0,0 +1,58 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+
+public class CheckExecutorTest {
+
+	private CheckExecutor checkExecutor;
+
+	@Before
+	public void setUp() {
+		checkExecutor = new CheckExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		checkExecutor.shutdown();
+	}
+
+	@Test
+	public void testThreadCountIsBounded() throws Exception {
+		Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		List<Future<String>> futures = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final String result = "result " + i;
+			futures.add(checkExecutor.submit(CheckType.SINGLE_PAGE, new AbstractCheckThread(new Check()) {
+				@Override
+				public void performCheck() {
+					threadNames.add(Thread.currentThread().getName());
+					appendMessage(result);
+				}
+
+				@Override
+				public void run() {
+					performCheck();
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			assertEquals("result " + i, futures.get(i).get());
+		}
+		assertTrue(threadNames.size() <= CheckExecutor.DEFAULT_SINGLE_PAGE_THREADS);
+	}
+
+}
@@ -0,0 +1,127 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Check.CheckType;
+import net.sf.sitemonitoring.entity.Configuration;
+import net.sf.sitemonitoring.service.ConfigurationService;
+
+public class CheckRunExecutorTest {
+
+	private static final Runnable DROPPED = () -> {
+		throw new AssertionError("dropped");
+	};
+
+	private CheckRunExecutor checkRunExecutor;
+
+	@Before
+	public void setUp() {
+		Configuration configuration = new Configuration();
+		configuration.setPageRunThreads(1);
+		configuration.setCrawlRunThreads(1);
+		configuration.setRunQueueSize(1);
+		ConfigurationService configurationService = Mockito.mock(ConfigurationService.class);
+		Mockito.when(configurationService.find()).thenReturn(configuration);
+		checkRunExecutor = new CheckRunExecutor();
+		checkRunExecutor.setConfigurationService(configurationService);
+	}
+
+	@After
+	public void tearDown() {
+		checkRunExecutor.shutdown();
+	}
+
+	private static Check check(CheckType type) {
+		Check check = new Check();
+		check.setName(type.name());
+		check.setType(type);
+		return check;
+	}
+
+	@Test
+	public void testPools() {
+		assertSame(checkRunExecutor.getPool(CheckType.SINGLE_PAGE), checkRunExecutor.getPool(CheckType.XML));
+		assertSame(checkRunExecutor.getPool(CheckType.SINGLE_PAGE), checkRunExecutor.getPool(CheckType.JSON));
+		assertSame(checkRunExecutor.getPool(CheckType.SINGLE_PAGE), checkRunExecutor.getPool(CheckType.XSD));
+		assertSame(checkRunExecutor.getPool(CheckType.SITEMAP), checkRunExecutor.getPool(CheckType.SPIDER));
+		assertNotSame(checkRunExecutor.getPool(CheckType.SINGLE_PAGE), checkRunExecutor.getPool(CheckType.SPIDER));
+	}
+
+	@Test
+	public void testFullPoolSkipsRun() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+		Runnable run = () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			finished.countDown();
+		};
+		CheckRunPool pool = checkRunExecutor.getPool(CheckType.SPIDER);
+		assertTrue(checkRunExecutor.execute(check(CheckType.SPIDER), run, DROPPED));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(checkRunExecutor.execute(check(CheckType.SITEMAP), run, DROPPED));
+		// one is running and one is queued
+		assertFalse(checkRunExecutor.execute(check(CheckType.SPIDER), run, DROPPED));
+		assertEquals(1, pool.getActiveCount());
+		assertEquals(1, pool.getQueueDepth());
+		assertEquals(1, pool.getSkippedRuns());
+
+		// full crawl pool doesn't block page checks
+		CountDownLatch pageFinished = new CountDownLatch(1);
+		assertTrue(checkRunExecutor.execute(check(CheckType.SINGLE_PAGE), pageFinished::countDown, DROPPED));
+		assertTrue(pageFinished.await(5, TimeUnit.SECONDS));
+
+		Thread.sleep(50);
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		assertEquals(2, pool.getStartedRuns());
+		// the second run waited for the first one
+		assertTrue(pool.getMaxWaitMillis() >= 50);
+		assertEquals(0, checkRunExecutor.getPool(CheckType.SINGLE_PAGE).getSkippedRuns());
+	}
+
+	@Test
+	public void testStaleRunIsDropped() throws Exception {
+		CheckRunPool pool = new CheckRunPool("test", 1, 10, 50);
+		try {
+			CountDownLatch release = new CountDownLatch(1);
+			CountDownLatch dropped = new CountDownLatch(1);
+			CountDownLatch finished = new CountDownLatch(1);
+			assertTrue(pool.execute(check(CheckType.SINGLE_PAGE), () -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, DROPPED));
+			assertTrue(pool.execute(check(CheckType.SINGLE_PAGE), finished::countDown, dropped::countDown));
+			Thread.sleep(100);
+			release.countDown();
+			assertTrue(dropped.await(5, TimeUnit.SECONDS));
+			assertEquals(1, finished.getCount());
+			assertEquals(1, pool.getDroppedRuns());
+			assertEquals(1, pool.getStartedRuns());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class CrawlFrontierTest {
+
+	@Test
+	public void testFifoOrderWithSpillToDisk() throws Exception {
+		try (CrawlFrontier frontier = new CrawlFrontier(3)) {
+			for (int i = 0; i < 10; i++) {
+				frontier.add("http://localhost/page" + i, "http://localhost/", 1);
+			}
+			assertEquals(10, frontier.size());
+			for (int i = 0; i < 5; i++) {
+				assertEquals("http://localhost/page" + i, frontier.poll().getUrl());
+			}
+			frontier.add("http://localhost/page10", "http://localhost/page4", 2);
+			for (int i = 5; i < 10; i++) {
+				CrawlFrontier.Entry entry = frontier.poll();
+				assertEquals("http://localhost/page" + i, entry.getUrl());
+				assertEquals("http://localhost/", entry.getReferer());
+				assertEquals(1, entry.getDepth());
+			}
+			CrawlFrontier.Entry entry = frontier.poll();
+			assertEquals("http://localhost/page10", entry.getUrl());
+			assertEquals("http://localhost/page4", entry.getReferer());
+			assertEquals(2, entry.getDepth());
+			assertNull(frontier.poll());
+			assertTrue(frontier.isEmpty());
+		}
+	}
+
+	@Test
+	public void testNullReferer() throws Exception {
+		try (CrawlFrontier frontier = new CrawlFrontier(1)) {
+			frontier.add("http://localhost/a", null, 0);
+			// on disk
+			frontier.add("http://localhost/b", null, 0);
+			frontier.add("http://localhost/c", "2018-01-01", 0);
+			assertNull(frontier.poll().getReferer());
+			assertNull(frontier.poll().getReferer());
+			assertEquals("2018-01-01", frontier.poll().getReferer());
+		}
+	}
+
+	private static int temporaryFiles() {
+		String[] files = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("sitemonitoring-frontier"));
+		return files == null ? 0 : files.length;
+	}
+
+	@Test
+	public void testTemporaryFileDeleted() throws Exception {
+		int before = temporaryFiles();
+		try (CrawlFrontier frontier = new CrawlFrontier(1)) {
+			frontier.add("http://localhost/a", null, 0);
+			frontier.add("http://localhost/b", null, 0);
+			assertEquals(before + 1, temporaryFiles());
+		}
+		assertEquals(before, temporaryFiles());
+	}
+
+}
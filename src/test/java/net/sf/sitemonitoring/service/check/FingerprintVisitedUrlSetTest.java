@@ -0,0 +1,31 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FingerprintVisitedUrlSetTest {
+
+	@Test
+	public void testAdd() {
+		try (FingerprintVisitedUrlSet visitedUrlSet = new FingerprintVisitedUrlSet()) {
+			// table is resized several times
+			for (int i = 0; i < 10000; i++) {
+				assertTrue(visitedUrlSet.add("http://localhost/page" + i));
+			}
+			for (int i = 0; i < 10000; i++) {
+				assertFalse(visitedUrlSet.add("http://localhost/page" + i));
+			}
+			assertEquals(10000, visitedUrlSet.size());
+		}
+	}
+
+	@Test
+	public void testCreate() {
+		assertTrue(VisitedUrlSet.create(0) instanceof FingerprintVisitedUrlSet);
+		assertTrue(VisitedUrlSet.create(100) instanceof SpillableVisitedUrlSet);
+	}
+
+}
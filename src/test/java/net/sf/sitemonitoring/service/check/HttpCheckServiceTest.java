@@ -6,8 +6,11 @@ import net.sf.sitemonitoring.entity.Check.CheckCondition;
 import net.sf.sitemonitoring.entity.Check.CheckType;
 import net.sf.sitemonitoring.entity.Check.HttpMethod;
 import net.sf.sitemonitoring.entity.Credentials;
+import net.sf.sitemonitoring.entity.PageValidator;
+import net.sf.sitemonitoring.service.PageValidatorService;
 import net.sf.sitemonitoring.service.check.util.PagingServlet;
 import net.sf.sitemonitoring.service.check.util.ProxyServerUtil;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.junit.After;
@@ -16,12 +19,14 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.littleshoot.proxy.HttpProxyServer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.io.IOException;
+import java.net.Authenticator.RequestorType;
 
 import static org.junit.Assert.*;
 
@@ -41,6 +46,9 @@ public class HttpCheckServiceTest {
 
 	private SpiderCheckThread spiderCheckThread;
 
+	@Autowired
+	private PageValidatorService pageValidatorService;
+
 	public static String TEST_JETTY_HTTP = "http://localhost:8081/";
 
 	private static final int timeout = 10000;
@@ -96,6 +104,125 @@ public class HttpCheckServiceTest {
 				singlePageCheckService.performCheck(check));
 	}
 
+	@Test
+	public void testPerformCheckSinglePageParallelBrokenLinks() throws Exception {
+		CheckExecutor checkExecutor = new CheckExecutor();
+		singlePageCheckService.setCheckExecutor(checkExecutor);
+		try {
+			Check check = new Check();
+			check.setCondition("</html>");
+			check.setReturnHttpCode(200);
+			check.setType(CheckType.SINGLE_PAGE);
+			check.setConditionType(CheckCondition.CONTAINS);
+			check.setUrl(TEST_JETTY_HTTP + "contains-broken-links.html");
+			check.setCheckBrokenLinks(true);
+			check.setFollowOutboundBrokenLinks(true);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+			check.setHttpMethod(HttpMethod.GET);
+
+			assertEquals(
+					"http://localhost:8081/contains-broken-links.html has error: Invalid status: http://localhost:8081/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/contains-broken-links.html has error: http://www.doesntexist93283893289292947987498.com/: Unknown host: www.doesntexist93283893289292947987498.com<br />",
+					singlePageCheckService.performCheck(check));
+		} finally {
+			checkExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAsyncAuthenticatorScope() {
+		Check check = new Check();
+		check.setUrl("http://secured.example.com:8080/admin");
+		Credentials credentials = new Credentials();
+		credentials.setUsername("admin");
+		credentials.setPassword("secret");
+		check.setCredentials(credentials);
+		AsyncHttpEngine.CheckAuthenticator authenticator = new AsyncHttpEngine.CheckAuthenticator(check);
+		assertEquals("admin", authenticator.requestPasswordAuthenticationInstance("secured.example.com", null, 8080, "http", "realm", "basic", null,
+				RequestorType.SERVER).getUserName());
+		// link to another host or port doesn't get the credentials
+		assertNull(authenticator.requestPasswordAuthenticationInstance("other.example.com", null, 8080, "http", "realm", "basic", null,
+				RequestorType.SERVER));
+		assertNull(authenticator.requestPasswordAuthenticationInstance("secured.example.com", null, 80, "http", "realm", "basic", null,
+				RequestorType.SERVER));
+		assertNull(authenticator.requestPasswordAuthenticationInstance("secured.example.com", null, 8080, "http", "realm", "basic", null,
+				RequestorType.PROXY));
+	}
+
+	@Test
+	public void testAsyncRestrictedHeader() throws Exception {
+		AsyncHttpEngine asyncHttpEngine = new AsyncHttpEngine();
+		try {
+			Check check = new Check();
+			check.setReturnHttpCode(200);
+			check.setUrl(TEST_JETTY_HTTP + "index.html");
+			check.setHeader("Host:example.com");
+			check.setHttpMethod(HttpMethod.GET);
+
+			assertEquals("http://localhost:8081/index.html has error: invalid header: restricted header name: \"Host\"",
+					asyncHttpEngine.check(check, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet()).get());
+		} finally {
+			asyncHttpEngine.shutdown();
+		}
+	}
+
+	@Test
+	public void testPerformCheckSinglePageAsyncBrokenLinks() throws Exception {
+		AsyncHttpEngine asyncHttpEngine = new AsyncHttpEngine() {
+			@Override
+			public boolean isEnabled() {
+				return true;
+			}
+		};
+		singlePageCheckService.setAsyncHttpEngine(asyncHttpEngine);
+		try {
+			Check check = new Check();
+			check.setCondition("</html>");
+			check.setReturnHttpCode(200);
+			check.setType(CheckType.SINGLE_PAGE);
+			check.setConditionType(CheckCondition.CONTAINS);
+			check.setUrl(TEST_JETTY_HTTP + "contains-broken-links.html");
+			check.setCheckBrokenLinks(true);
+			check.setFollowOutboundBrokenLinks(true);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+			check.setHttpMethod(HttpMethod.GET);
+
+			assertEquals(
+					"http://localhost:8081/contains-broken-links.html has error: Invalid status: http://localhost:8081/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/contains-broken-links.html has error: http://www.doesntexist93283893289292947987498.com/: Unknown host: www.doesntexist93283893289292947987498.com<br />",
+					singlePageCheckService.performCheck(check));
+		} finally {
+			asyncHttpEngine.shutdown();
+		}
+	}
+
+	@Test
+	public void testPerformCheckSinglePagePooledHttpClient() throws Exception {
+		HttpClientPool httpClientPool = new HttpClientPool();
+		singlePageCheckService.setHttpClientPool(httpClientPool);
+		try {
+			for (int i = 0; i < 2; i++) {
+				Check check = new Check();
+				check.setCondition("</html>");
+				check.setReturnHttpCode(200);
+				check.setType(CheckType.SINGLE_PAGE);
+				check.setConditionType(CheckCondition.CONTAINS);
+				check.setUrl(TEST_JETTY_HTTP + "index.html");
+				check.setCheckBrokenLinks(false);
+				check.setSocketTimeout(timeout);
+				check.setConnectionTimeout(timeout);
+				check.setHttpMethod(HttpMethod.GET);
+
+				assertNull(singlePageCheckService.performCheck(check));
+			}
+			// connection was returned to the pool and reused
+			assertEquals(0, httpClientPool.getTotalStats().getLeased());
+			assertEquals(1, httpClientPool.getTotalStats().getAvailable());
+		} finally {
+			httpClientPool.shutdown();
+		}
+	}
+
 	@Test
 	public void testPerformCheckSinglePageContainsWithProxy() throws Exception {
 		HttpProxyServer proxyServer = ProxyServerUtil.start();
@@ -232,8 +359,11 @@ public class HttpCheckServiceTest {
 		CloseableHttpClient httpClient = null;
 		try {
 			httpClient = HttpClients.createDefault();
-			String sitemapXml = sitemapCheckThread.downloadSitemap(httpClient, TEST_JETTY_HTTP + "sitemap.xml");
-			assertTrue(sitemapXml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+			try (CloseableHttpResponse httpResponse = sitemapCheckThread.openSitemap(httpClient, TEST_JETTY_HTTP + "sitemap.xml");
+					SitemapReader sitemapReader = new SitemapReader(httpResponse.getEntity().getContent())) {
+				assertFalse(sitemapReader.isSitemapIndex());
+				assertEquals("http://www.sqlvids.com/", sitemapReader.nextLoc());
+			}
 		} finally {
 			if (httpClient != null) {
 				httpClient.close();
@@ -259,12 +389,41 @@ public class HttpCheckServiceTest {
 		assertNull(sitemapCheckThread.output);
 	}
 
+	@Test
+	public void testCheckSitemapIndexConcurrent() throws Exception {
+		CheckExecutor checkExecutor = new CheckExecutor();
+		singlePageCheckService.setCheckExecutor(checkExecutor);
+		sitemapCheckThread.setCheckExecutor(checkExecutor);
+		sitemapCheckThread.setSitemapIndexConcurrency(2);
+		sitemapCheckThread.setConcurrency(2);
+		try {
+			Check check = new Check();
+			check.setCondition("doesn't exist on the page");
+			check.setReturnHttpCode(200);
+			check.setType(CheckType.SITEMAP);
+			check.setConditionType(CheckCondition.CONTAINS);
+			check.setUrl(TEST_JETTY_HTTP + "sitemap-index.xml");
+			check.setExcludedUrls("*sqlvids*\r\n*pdf");
+			check.setCheckBrokenLinks(false);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+
+			sitemapCheckThread.check = check;
+			sitemapCheckThread.performCheck();
+			assertEquals(
+					"http://localhost:8081/test-do-not-follow.html doesn't contain doesn't exist on the page<br />http://localhost:8081/index.html doesn't contain doesn't exist on the page<br />",
+					sitemapCheckThread.output);
+		} finally {
+			checkExecutor.shutdown();
+		}
+	}
+
 	@Test(expected = IOException.class)
 	public void testDownloadSitemapError() throws Exception {
 		CloseableHttpClient httpClient = null;
 		try {
 			httpClient = HttpClients.createDefault();
-			sitemapCheckThread.downloadSitemap(httpClient, TEST_JETTY_HTTP + "sitemap.notexists.xml");
+			sitemapCheckThread.openSitemap(httpClient, TEST_JETTY_HTTP + "sitemap.notexists.xml");
 		} finally {
 			if (httpClient != null) {
 				httpClient.close();
@@ -290,6 +449,63 @@ public class HttpCheckServiceTest {
 
 	}
 
+	@Test
+	public void testSpiderConcurrentWithoutBrokenLinks() {
+		CheckExecutor checkExecutor = new CheckExecutor();
+		singlePageCheckService.setCheckExecutor(checkExecutor);
+		spiderCheckThread.setConcurrency(4);
+		try {
+			Check check = new Check();
+			check.setReturnHttpCode(200);
+			check.setType(CheckType.SPIDER);
+			check.setUrl(TEST_JETTY_HTTP + "spider/");
+			check.setCheckBrokenLinks(false);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+			spiderCheckThread.check = check;
+			spiderCheckThread.performCheck();
+			assertEquals(
+					"http://localhost:8081/spider/ has error: Invalid status: http://localhost:8081/spider/broken-link.html required: 200, received: 500 <br />http://localhost:8081/spider/contains-broken-links.html has error: Invalid status: http://localhost:8081/spider/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/spider/page?id=9 has error: Invalid status: http://localhost:8081/spider/not-found.html required: 200, received: 500 <br />",
+					spiderCheckThread.output);
+		} finally {
+			checkExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSpiderSpillToDisk() {
+		spiderCheckThread.setVisitedUrlsMemoryThreshold(2);
+		spiderCheckThread.setFrontierMemoryThreshold(2);
+		Check check = new Check();
+		check.setReturnHttpCode(200);
+		check.setType(CheckType.SPIDER);
+		check.setUrl(TEST_JETTY_HTTP + "spider/");
+		check.setCheckBrokenLinks(false);
+		check.setSocketTimeout(timeout);
+		check.setConnectionTimeout(timeout);
+		spiderCheckThread.check = check;
+		spiderCheckThread.performCheck();
+		assertEquals(
+				"http://localhost:8081/spider/ has error: Invalid status: http://localhost:8081/spider/broken-link.html required: 200, received: 500 <br />http://localhost:8081/spider/contains-broken-links.html has error: Invalid status: http://localhost:8081/spider/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/spider/page?id=9 has error: Invalid status: http://localhost:8081/spider/not-found.html required: 200, received: 500 <br />",
+				spiderCheckThread.output);
+	}
+
+	@Test
+	public void testSpiderMaxDepth() {
+		Check check = new Check();
+		check.setReturnHttpCode(200);
+		check.setType(CheckType.SPIDER);
+		check.setUrl(TEST_JETTY_HTTP + "spider/");
+		check.setCheckBrokenLinks(false);
+		check.setSocketTimeout(timeout);
+		check.setConnectionTimeout(timeout);
+		check.setSpiderMaxDepth(1);
+		spiderCheckThread.check = check;
+		spiderCheckThread.performCheck();
+		assertEquals("http://localhost:8081/spider/ has error: Invalid status: http://localhost:8081/spider/broken-link.html required: 200, received: 500 <br />",
+				spiderCheckThread.output);
+	}
+
 	@Test
 	public void testSpiderWithBrokenLinks() {
 		Check check = new Check();
@@ -306,6 +522,39 @@ public class HttpCheckServiceTest {
 				spiderCheckThread.output);
 	}
 
+	@Test
+	public void testSpiderConditionalRequests() {
+		singlePageCheckService.setPageValidatorService(pageValidatorService);
+		spiderCheckThread.setConditionalRequests(true);
+		Check check = new Check();
+		check.setId(1000);
+		check.setReturnHttpCode(200);
+		check.setType(CheckType.SPIDER);
+		check.setUrl(TEST_JETTY_HTTP + "spider/");
+		check.setCheckBrokenLinks(true);
+		check.setSocketTimeout(timeout);
+		check.setConnectionTimeout(timeout);
+		spiderCheckThread.check = check;
+		try {
+			spiderCheckThread.performCheck();
+			String firstOutput = spiderCheckThread.output;
+			// static page has Last-Modified, it's stored with its links
+			PageValidator pageValidator = pageValidatorService.find(1000, TEST_JETTY_HTTP + "spider/contains-broken-links.html");
+			assertNotNull(pageValidator.getLastModified());
+			assertTrue(pageValidator.getLinks().contains(TEST_JETTY_HTTP + "spider/doesnt-exist"));
+			// page with broken link isn't stored
+			assertNull(pageValidatorService.find(1000, TEST_JETTY_HTTP + "spider/broken-link.html"));
+
+			spiderCheckThread.output = null;
+			spiderCheckThread.performCheck();
+			// server responded 304, stored links were checked again
+			assertEquals(firstOutput, spiderCheckThread.output);
+			assertEquals(pageValidator.getVerifiedDate(), pageValidatorService.find(1000, TEST_JETTY_HTTP + "spider/contains-broken-links.html").getVerifiedDate());
+		} finally {
+			pageValidatorService.deleteByCheckId(1000);
+		}
+	}
+
 	@Test
 	public void testPerformCheckSitemapWithErrorsNoBrokenLinks() throws Exception {
 		Check check = new Check();
@@ -347,6 +596,61 @@ public class HttpCheckServiceTest {
 				sitemapCheckThread.output);
 	}
 
+	@Test
+	public void testPerformCheckSitemapConcurrentWithErrorsAndBrokenLinks() throws Exception {
+		CheckExecutor checkExecutor = new CheckExecutor();
+		singlePageCheckService.setCheckExecutor(checkExecutor);
+		sitemapCheckThread.setConcurrency(4);
+		try {
+			Check check = new Check();
+			check.setType(CheckType.SITEMAP);
+			check.setReturnHttpCode(200);
+			check.setConditionType(CheckCondition.CONTAINS);
+			check.setCondition("</html>");
+			check.setExcludedUrls("*pdf");
+			check.setUrl(TEST_JETTY_HTTP + "local-sitemap-with-errors.xml");
+			check.setCheckBrokenLinks(true);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+			check.setHttpMethod(HttpMethod.GET);
+			check.setFollowOutboundBrokenLinks(true);
+
+			sitemapCheckThread.check = check;
+			sitemapCheckThread.performCheck();
+			assertEquals(
+					"Invalid status: http://localhost:8081/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/contains-broken-links.html has error: Invalid status: http://localhost:8081/doesnt-exist required: 200, received: 500 <br />http://localhost:8081/contains-broken-links.html has error: http://www.doesntexist93283893289292947987498.com/: Unknown host: www.doesntexist93283893289292947987498.com<br /><br />",
+					sitemapCheckThread.output);
+		} finally {
+			checkExecutor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPerformCheckSitemapAsyncWithErrorsNoBrokenLinks() throws Exception {
+		AsyncHttpEngine asyncHttpEngine = new AsyncHttpEngine();
+		sitemapCheckThread.setAsyncHttpEngine(asyncHttpEngine);
+		sitemapCheckThread.setConcurrency(4);
+		try {
+			Check check = new Check();
+			check.setType(CheckType.SITEMAP);
+			check.setReturnHttpCode(200);
+			check.setConditionType(CheckCondition.CONTAINS);
+			check.setCondition("</html>");
+			check.setExcludedUrls("*pdf");
+			check.setUrl(TEST_JETTY_HTTP + "local-sitemap-with-errors.xml");
+			check.setCheckBrokenLinks(false);
+			check.setSocketTimeout(timeout);
+			check.setConnectionTimeout(timeout);
+			check.setHttpMethod(HttpMethod.GET);
+
+			sitemapCheckThread.check = check;
+			sitemapCheckThread.performCheck();
+			assertEquals("Invalid status: http://localhost:8081/doesnt-exist required: 200, received: 500 <br />", sitemapCheckThread.output);
+		} finally {
+			asyncHttpEngine.shutdown();
+		}
+	}
+
 	@Test
 	public void testPerformCheckSitemapWithErrorsAndBrokenLinksDoNotFollowOutboundUnspecified() throws Exception {
 		Check check = new Check();
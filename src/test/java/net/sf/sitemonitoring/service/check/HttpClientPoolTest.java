@@ -0,0 +1,56 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import net.sf.sitemonitoring.entity.Check;
+import net.sf.sitemonitoring.entity.Credentials;
+
+public class HttpClientPoolTest {
+
+	private final HttpClientPool httpClientPool = new HttpClientPool();
+
+	@After
+	public void tearDown() {
+		httpClientPool.shutdown();
+	}
+
+	private static Check check(String url, String username, String password) {
+		Check check = new Check();
+		check.setUrl(url);
+		if (username != null) {
+			Credentials credentials = new Credentials();
+			credentials.setUsername(username);
+			credentials.setPassword(password);
+			check.setCredentials(credentials);
+		}
+		return check;
+	}
+
+	@Test
+	public void testKey() {
+		// passwords with the same hash code
+		assertNotEquals(HttpClientPool.getKey(check("http://localhost/", "admin", "Aa")), HttpClientPool.getKey(check("http://localhost/", "admin", "BB")));
+		assertNotEquals(HttpClientPool.getKey(check("http://localhost:8080/", "admin", "Aa")), HttpClientPool.getKey(check("http://localhost:8081/", "admin", "Aa")));
+		assertEquals(HttpClientPool.getKey(check("http://localhost/a", "admin", "Aa")), HttpClientPool.getKey(check("http://localhost/b", "admin", "Aa")));
+	}
+
+	@Test
+	public void testEvictIdleClients() {
+		Check check = check("http://localhost/", null, null);
+		CloseableHttpClient httpClient = httpClientPool.getHttpClient(check);
+		assertSame(httpClient, httpClientPool.getHttpClient(check));
+		httpClientPool.evictIdleClients(60000);
+		assertEquals(1, httpClientPool.getClientCount());
+		httpClientPool.evictIdleClients(-1);
+		assertEquals(0, httpClientPool.getClientCount());
+		assertNotSame(httpClient, httpClientPool.getHttpClient(check));
+	}
+
+}
@@ -0,0 +1,93 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+public class JsonPathEvaluatorTest {
+
+	private static final String JSON = "{\"status\": \"UP\", \"version\": 12, \"ratio\": 0.25, \"big\": 12345678901234, \"ok\": true, \"none\": null,\n" //
+			+ " \"details\": {\"db\": {\"status\": \"DOWN\", \"tags\": [\"a\", \"b\"]}, \"disk\": {\"free\": 1.5e3}},\n" //
+			+ " \"items\": [{\"name\": \"first\", \"values\": [1, 2]}, {\"name\": \"second \\u00e9\"}, [3, {\"x\": 4}]]}";
+
+	private static String toString(Object result) {
+		return result == null ? null : result.toString();
+	}
+
+	private static Object evaluateStreaming(String path) throws Exception {
+		return JsonPathEvaluator.evaluateStreaming(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)), null, path);
+	}
+
+	@Test
+	public void testStreamingSameAsJsonPath() throws Exception {
+		String[] paths = { "$.status", "$.version", "$.ratio", "$.big", "$.ok", "$.none", "$.details.db.status", "$.details.db.tags[1]", "$.details.disk.free",
+				"$.items[0].name", "$.items[1].name", "$.items[0].values[1]", "$.items[2][1].x", "$.details.db", "$.details.db.tags", "$.items[2]" };
+		for (String path : paths) {
+			assertTrue(path, JsonPathEvaluator.isSimplePath(path));
+			assertEquals(path, toString(JsonPath.read(JSON, path)), toString(evaluateStreaming(path)));
+		}
+		assertEquals("UP", evaluateStreaming("$.status"));
+	}
+
+	@Test
+	public void testStreamingNotFound() throws Exception {
+		String[] paths = { "$.missing", "$.status.missing", "$.items[5]", "$.items[0].missing", "$.details[0]", "$.items.name" };
+		for (String path : paths) {
+			try {
+				JsonPath.read(JSON, path);
+				fail(path);
+			} catch (PathNotFoundException e) {
+				// expected
+			}
+			try {
+				evaluateStreaming(path);
+				fail(path);
+			} catch (PathNotFoundException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testStreamingStopsAtValue() throws Exception {
+		// rest of the document isn't even valid JSON
+		InputStream json = new ByteArrayInputStream("{\"status\": \"UP\", \"rest\": [[[".getBytes(StandardCharsets.UTF_8));
+		assertEquals("UP", JsonPathEvaluator.evaluateStreaming(json, StandardCharsets.UTF_8, "$.status"));
+	}
+
+	@Test(expected = InvalidJsonException.class)
+	public void testStreamingInvalidJson() throws Exception {
+		InputStream json = new ByteArrayInputStream("{\"status\" \"UP\"}".getBytes(StandardCharsets.UTF_8));
+		JsonPathEvaluator.evaluateStreaming(json, StandardCharsets.UTF_8, "$.status");
+	}
+
+	@Test
+	public void testIsSimplePath() {
+		assertFalse(JsonPathEvaluator.isSimplePath("$"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$..status"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$.items[*].name"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$.items[-1]"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$['status']"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$.items[?(@.name == 'first')]"));
+		assertFalse(JsonPathEvaluator.isSimplePath("$.items.length()"));
+	}
+
+	@Test
+	public void testCompiledPathIsReused() {
+		assertSame(JsonPathEvaluator.compile("$.items[*].name"), JsonPathEvaluator.compile("$.items[*].name"));
+		assertEquals("[\"first\",\"second \u00e9\"]", JsonPathEvaluator.evaluate(JSON, "$.items[*].name").toString());
+	}
+
+}
@@ -0,0 +1,63 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Compares time of finding links with {@link LinkExtractor} and with Jsoup DOM
+ * on test pages and on a big (about 2 MB) page made of them. It isn't a unit
+ * test, run it with: {@code java -cp ... LinkExtractorBenchmark [iterations]}
+ */
+public class LinkExtractorBenchmark {
+
+	private static final String BASE_URL = "http://localhost:8081/";
+
+	private static long measure(List<String> pages, int iterations, BiFunction<String, String, List<String>> extractor) {
+		long links = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			for (String page : pages) {
+				links += extractor.apply(page, BASE_URL).size();
+			}
+		}
+		long micros = (System.nanoTime() - start) / 1000 / iterations;
+		System.out.println("  " + micros + " us per iteration, links: " + links / iterations);
+		return micros;
+	}
+
+	private static void compare(String name, List<String> pages, int iterations) {
+		System.out.println(name + ", Jsoup:");
+		measure(pages, iterations / 10, LinkExtractorTest::extractWithJsoup);
+		long jsoup = measure(pages, iterations, LinkExtractorTest::extractWithJsoup);
+		System.out.println(name + ", LinkExtractor:");
+		measure(pages, iterations / 10, LinkExtractorTest::extract);
+		long linkExtractor = measure(pages, iterations, LinkExtractorTest::extract);
+		System.out.println(name + ", speedup: " + (jsoup / Math.max(1, linkExtractor)) + "x");
+	}
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Collection<File> files = FileUtils.listFiles(new File("src/test/resources/static"), new String[] { "html" }, true);
+		List<String> pages = new ArrayList<>();
+		for (File file : files) {
+			pages.add(FileUtils.readFileToString(file, "UTF-8"));
+		}
+		StringBuilder bigPage = new StringBuilder();
+		while (bigPage.length() < 2 * 1024 * 1024) {
+			for (String page : pages) {
+				bigPage.append(page);
+			}
+		}
+		List<String> bigPages = new ArrayList<>();
+		bigPages.add(bigPage.toString());
+
+		compare("test pages", pages, iterations * 100);
+		compare("2 MB page", bigPages, iterations);
+	}
+
+}
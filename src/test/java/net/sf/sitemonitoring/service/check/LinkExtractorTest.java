@@ -0,0 +1,67 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+public class LinkExtractorTest {
+
+	static List<String> extract(String html, String baseUrl) {
+		List<String> urls = new ArrayList<>();
+		LinkExtractor linkExtractor = new LinkExtractor(html, baseUrl);
+		String url;
+		while ((url = linkExtractor.next()) != null) {
+			urls.add(url);
+		}
+		return urls;
+	}
+
+	static List<String> extractWithJsoup(String html, String baseUrl) {
+		List<String> urls = new ArrayList<>();
+		for (Element element : Jsoup.parse(html).select("a")) {
+			element.setBaseUri(baseUrl);
+			// anchors without href are skipped by LinkExtractor
+			if (element.hasAttr("href")) {
+				urls.add(element.absUrl("href"));
+			}
+		}
+		return urls;
+	}
+
+	@Test
+	public void testSameAsJsoupOnTestPages() throws Exception {
+		for (File file : FileUtils.listFiles(new File("src/test/resources/static"), new String[] { "html" }, true)) {
+			String html = FileUtils.readFileToString(file, "UTF-8");
+			String baseUrl = "http://localhost:8081/" + file.getName();
+			assertEquals(file.getName(), extractWithJsoup(html, baseUrl), extract(html, baseUrl));
+		}
+	}
+
+	@Test
+	public void testExtract() {
+		String html = "<!DOCTYPE html><html><head><title><a href='title'></title>" //
+				+ "<script>var a = '<a href=\"script\">';</script><style>a { }</style></head><body>" //
+				+ "<!-- <a href=\"comment\"> -->" //
+				+ "<A HREF=\"upper.html\">upper</A>" //
+				+ "<a class=\"x\" data-x='>' href=relative/page.html>relative</a>" //
+				+ "<a href = \"first\" href=\"?a=1&amp;b=2\">entity</a>" //
+				+ "<a name=\"anchor\">no href</a>" //
+				+ "<a href=\"\">empty</a>" //
+				+ "<a href=\"http://other.com/#x\">absolute</a>" //
+				+ "1 < 2 <abbr href=\"abbr\">x</abbr><a href=\"/last\"/>";
+		String baseUrl = "http://localhost/dir/index.html";
+		List<String> expected = Arrays.asList("http://localhost/dir/upper.html", "http://localhost/dir/relative/page.html", "http://localhost/dir/index.html?a=1&b=2",
+				"http://localhost/dir/index.html", "http://other.com/#x", "http://localhost/last");
+		assertEquals(expected, extract(html, baseUrl));
+		assertEquals(expected, extractWithJsoup(html, baseUrl));
+	}
+
+}
@@ -0,0 +1,206 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.entity.BasicHttpEntity;
+import org.junit.Test;
+
+public class ResponseBodyReaderTest {
+
+	private static BasicHttpEntity entity(ByteArrayInputStream content, String contentType) {
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContent(content);
+		entity.setContentType(contentType);
+		return entity;
+	}
+
+	private static byte[] page(int length, String text) {
+		StringBuilder page = new StringBuilder();
+		while (page.length() < length) {
+			page.append("<p>lorem ipsum</p>");
+		}
+		page.insert(page.length() / 2, text);
+		return page.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static List<PageCondition> conditions(String... lines) {
+		List<PageCondition> conditions = new ArrayList<>();
+		for (String line : lines) {
+			conditions.add(PageCondition.parse(line));
+		}
+		return conditions;
+	}
+
+	@Test
+	public void testAhoCorasickMatcher() {
+		AhoCorasickMatcher matcher = new AhoCorasickMatcher(Arrays.asList("aab", "ab", "bc", "xyz"));
+		assertFalse(matcher.update("xaaa"));
+		assertFalse(matcher.update("bx"));
+		assertTrue(matcher.isFound(0));
+		assertTrue(matcher.isFound(1));
+		assertFalse(matcher.isFound(2));
+		// text split between chunks
+		assertFalse(matcher.update("xy"));
+		assertTrue(matcher.update("zbc"));
+	}
+
+	@Test
+	public void testConditions() throws Exception {
+		byte[] page = "<html><p>price: 120 EUR</p><p>in stock</p></html>".getBytes(StandardCharsets.UTF_8);
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("in stock", "doesn't contain: Exception", "matches: price: \\d+ EUR", "doesn't match: [Ee]rror"), 0);
+		bodyReader.read(entity(new ByteArrayInputStream(page), "text/html"), false);
+		assertNull(bodyReader.evaluate("http://localhost"));
+
+		bodyReader = new ResponseBodyReader(conditions("contains: sold out", "doesn't contain: stock", "matches: price: [a-z]+", "doesn't match: \\d+"), 0);
+		bodyReader.read(entity(new ByteArrayInputStream(page), "text/html"), false);
+		assertEquals("http://localhost doesn't contain sold out<br />http://localhost contains stock<br />http://localhost doesn't match price: [a-z]+<br />http://localhost matches \\d+",
+				bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testInvalidRegex() {
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("matches: [a-"), 0);
+		bodyReader.match("page");
+		assertEquals("http://localhost has error: invalid regular expression: [a-", bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testConditionFoundStopsReading() throws Exception {
+		ByteArrayInputStream content = new ByteArrayInputStream(page(1024 * 1024, "condition"));
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("condition"), 0);
+		assertNull(bodyReader.read(entity(content, "text/html; charset=UTF-8"), false));
+		assertNull(bodyReader.evaluate("http://localhost"));
+		assertFalse(bodyReader.isTruncated());
+		// only about a half of the page was read
+		assertTrue(content.available() > 400 * 1024);
+	}
+
+	@Test
+	public void testConditionNotFound() throws Exception {
+		ByteArrayInputStream content = new ByteArrayInputStream(page(100 * 1024, ""));
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("condition"), 0);
+		assertNull(bodyReader.read(entity(content, "text/html"), false));
+		assertEquals("http://localhost doesn't contain condition", bodyReader.evaluate("http://localhost"));
+		assertEquals(0, content.available());
+	}
+
+	@Test
+	public void testKeepWebPage() throws Exception {
+		byte[] page = "<p>žluťoučký kůň</p>".getBytes(StandardCharsets.UTF_8);
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("kůň"), 0);
+		assertEquals("<p>žluťoučký kůň</p>", bodyReader.read(entity(new ByteArrayInputStream(page), "text/html; charset=UTF-8"), true));
+		assertNull(bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testMaxBodySize() throws Exception {
+		ByteArrayInputStream content = new ByteArrayInputStream(page(1024 * 1024, "condition"));
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("condition"), 100 * 1024);
+		String webPage = bodyReader.read(entity(content, "text/html"), true);
+		assertTrue(bodyReader.isTruncated());
+		assertEquals("http://localhost doesn't contain condition (checked first 100 kB)", bodyReader.evaluate("http://localhost"));
+		assertTrue(webPage.length() < 200 * 1024);
+	}
+
+	@Test
+	public void testMaxBodySizeNegativeCondition() throws Exception {
+		ByteArrayInputStream content = new ByteArrayInputStream(page(1024 * 1024, "Exception"));
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("doesn't contain: Exception"), 100 * 1024);
+		bodyReader.read(entity(content, "text/html"), false);
+		assertTrue(bodyReader.isTruncated());
+		// exception is in the part, which wasn't read
+		assertEquals("http://localhost may contain Exception (checked first 100 kB)", bodyReader.evaluate("http://localhost"));
+
+		content = new ByteArrayInputStream(page(1024 * 1024, ""));
+		bodyReader = new ResponseBodyReader(conditions("doesn't contain: lorem"), 100 * 1024);
+		bodyReader.read(entity(content, "text/html"), false);
+		assertEquals("http://localhost contains lorem", bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testMaxBodySizeDoesntMatch() throws Exception {
+		ByteArrayInputStream content = new ByteArrayInputStream(page(1024 * 1024, "Error 500"));
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("doesn't match: Error \\d+"), 100 * 1024);
+		bodyReader.read(entity(content, "text/html"), false);
+		assertTrue(bodyReader.isTruncated());
+		assertEquals("http://localhost may match Error \\d+ (checked first 100 kB)", bodyReader.evaluate("http://localhost"));
+
+		content = new ByteArrayInputStream(page(1024 * 1024, ""));
+		bodyReader = new ResponseBodyReader(conditions("doesn't match: l.rem"), 100 * 1024);
+		bodyReader.read(entity(content, "text/html"), false);
+		assertEquals("http://localhost matches l.rem", bodyReader.evaluate("http://localhost"));
+	}
+
+	/**
+	 * Sends body to subscriber in chunks of given size.
+	 *
+	 * @return true if subscriber cancelled download
+	 */
+	private static boolean subscribe(BodyReaderSubscriber subscriber, byte[] body, int chunkSize) {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		subscriber.onSubscribe(new Flow.Subscription() {
+
+			@Override
+			public void request(long n) {
+			}
+
+			@Override
+			public void cancel() {
+				cancelled.set(true);
+			}
+		});
+		for (int offset = 0; offset < body.length && !cancelled.get(); offset += chunkSize) {
+			subscriber.onNext(Collections.singletonList(ByteBuffer.wrap(body, offset, Math.min(chunkSize, body.length - offset))));
+		}
+		if (!cancelled.get()) {
+			subscriber.onComplete();
+		}
+		return cancelled.get();
+	}
+
+	@Test
+	public void testSubscriberCharset() throws Exception {
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("kůň"), 0);
+		// characters split between chunks
+		subscribe(new BodyReaderSubscriber(bodyReader, StandardCharsets.UTF_8), "<p>žluťoučký kůň</p>".getBytes(StandardCharsets.UTF_8), 3);
+		assertNull(bodyReader.evaluate("http://localhost"));
+
+		// ISO-8859-1 without charset, like blocking engine
+		bodyReader = new ResponseBodyReader(conditions("café"), 0);
+		subscribe(new BodyReaderSubscriber(bodyReader, null), "<p>café</p>".getBytes(StandardCharsets.UTF_8), 5);
+		assertEquals("http://localhost doesn't contain café", bodyReader.evaluate("http://localhost"));
+		bodyReader = new ResponseBodyReader(conditions("café"), 0);
+		subscribe(new BodyReaderSubscriber(bodyReader, null), "<p>café</p>".getBytes(StandardCharsets.ISO_8859_1), 5);
+		assertNull(bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testSubscriberMaxBodySize() throws Exception {
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("condition", "matches: lorem"), 100 * 1024);
+		assertTrue(subscribe(new BodyReaderSubscriber(bodyReader, null), page(1024 * 1024, "condition"), 16 * 1024));
+		assertTrue(bodyReader.isTruncated());
+		assertEquals("http://localhost doesn't contain condition (checked first 100 kB)", bodyReader.evaluate("http://localhost"));
+	}
+
+	@Test
+	public void testSubscriberConditionFound() throws Exception {
+		ResponseBodyReader bodyReader = new ResponseBodyReader(conditions("condition"), 0);
+		assertTrue(subscribe(new BodyReaderSubscriber(bodyReader, null), page(1024 * 1024, "condition"), 16 * 1024));
+		assertFalse(bodyReader.isTruncated());
+		assertNull(bodyReader.evaluate("http://localhost"));
+	}
+
+}
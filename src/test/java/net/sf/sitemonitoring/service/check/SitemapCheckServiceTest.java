@@ -1,16 +1,21 @@
 package net.sf.sitemonitoring.service.check;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
-import java.io.File;
-import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
-import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
 
-import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -21,8 +26,8 @@ import com.google.common.eventbus.EventBus;
 
 import net.sf.sitemonitoring.entity.Check;
 import net.sf.sitemonitoring.entity.Check.CheckCondition;
-import net.sf.sitemonitoring.jaxb.sitemap.Urlset;
-import net.sf.sitemonitoring.jaxb.sitemapindex.Sitemapindex;
+import net.sf.sitemonitoring.event.CheckDeletedEvent;
+import net.sf.sitemonitoring.event.CheckSavedEvent;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -33,42 +38,54 @@ public class SitemapCheckServiceTest {
 	@Mock
 	private SinglePageCheckService singlePageCheckServiceMock;
 
-	private Map<URI, Object> visitedPagesGet;
-	private Map<URI, Object> visitedPagesHead;
+	private VisitedUrlSet visitedPagesGet;
+	private VisitedUrlSet visitedPagesHead;
 
 	private static final int timeout = 1000;
 
 	@Before
 	public void before() {
-		visitedPagesGet = new HashMap<>();
-		visitedPagesHead = new HashMap<>();
+		visitedPagesGet = new MemoryVisitedUrlSet();
+		visitedPagesHead = new MemoryVisitedUrlSet();
 		SinglePageCheckService singlePageCheckService = new SinglePageCheckService();
 		singlePageCheckService.setEventBus(new EventBus());
 		sitemapCheckThread = new SitemapCheckThread(singlePageCheckService, null);
 	}
 
+	private static SitemapReader readSitemap(String file) throws Exception {
+		return new SitemapReader(new FileInputStream(file));
+	}
+
 	@Test
 	public void testConvertSitemap() throws Exception {
-		String sitemapXml = FileUtils.readFileToString(new File("src/test/resources/sitemap.xml"));
-		Urlset urlset = sitemapCheckThread.readSitemap(sitemapXml);
-		assertEquals(2, urlset.getUrls().size());
-		assertEquals("http://www.sqlvids.com/", urlset.getUrls().get(0).getLoc());
+		try (SitemapReader sitemapReader = readSitemap("src/test/resources/sitemap.xml")) {
+			assertFalse(sitemapReader.isSitemapIndex());
+			SitemapCheckThread.UrlSource urls = SitemapCheckThread.urlSource(sitemapReader);
+			assertEquals("http://www.sqlvids.com/", urls.next());
+			assertEquals("http://www.sqlvids.com/latest.html", urls.next());
+			assertNull(urls.next());
+		}
 	}
 
 	@Test
 	public void testConvertSitemapIndex() throws Exception {
-		String sitemapIndexXml = FileUtils.readFileToString(new File("src/test/resources/sitemap-index.xml"));
-		Sitemapindex sitemapindex = sitemapCheckThread.readSitemapIndex(sitemapIndexXml);
-		assertEquals(2, sitemapindex.getSitemaps().size());
-		assertEquals("http://localhost:8081/local-sitemap.xml", sitemapindex.getSitemaps().get(0).getLoc());
+		try (SitemapReader sitemapReader = readSitemap("src/test/resources/sitemap-index.xml")) {
+			assertTrue(sitemapReader.isSitemapIndex());
+			assertEquals("http://localhost:8081/local-sitemap.xml", sitemapReader.nextLoc());
+		}
 	}
 
-	@Test(expected = JAXBException.class)
+	@Test(expected = XMLStreamException.class)
 	public void testConvertSitemapError() throws Exception {
-		String sitemapXml = FileUtils.readFileToString(new File("src/test/resources/sitemap.corrupt.xml"));
-		Urlset urlset = sitemapCheckThread.readSitemap(sitemapXml);
-		assertEquals(2, urlset.getUrls().size());
-		assertEquals("http://www.sqlvids.com/", urlset.getUrls().get(0).getLoc());
+		try (SitemapReader sitemapReader = readSitemap("src/test/resources/sitemap.corrupt.xml")) {
+			SitemapCheckThread.UrlSource urls = SitemapCheckThread.urlSource(sitemapReader);
+			while (urls.next() != null) {
+			}
+		}
+	}
+
+	private static SitemapCheckThread.UrlSource urlSource(String sitemapXml) throws Exception {
+		return SitemapCheckThread.urlSource(new SitemapReader(new ByteArrayInputStream(sitemapXml.getBytes(StandardCharsets.UTF_8))));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -77,15 +94,14 @@ public class SitemapCheckServiceTest {
 		Mockito.when(singlePageCheckServiceMock.performCheck(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn("Error!");
 		sitemapCheckThread.setSinglePageCheckService(singlePageCheckServiceMock);
 
-		String sitemapXml = FileUtils.readFileToString(new File("src/test/resources/sitemap.xml"));
-		Urlset urlset = sitemapCheckThread.readSitemap(sitemapXml);
+		SitemapReader sitemapReader = readSitemap("src/test/resources/sitemap.xml");
 		Check sitemapCheck = new Check();
 		sitemapCheck.setConditionType(CheckCondition.CONTAINS);
 		sitemapCheck.setCondition("</html>");
 		sitemapCheck.setCheckBrokenLinks(false);
 		sitemapCheck.setSocketTimeout(timeout);
 		sitemapCheck.setConnectionTimeout(timeout);
-		String checkResult = sitemapCheckThread.check(urlset, sitemapCheck, null, null);
+		String checkResult = sitemapCheckThread.check(SitemapCheckThread.urlSource(sitemapReader), sitemapCheck, null, null);
 		assertEquals("Error!<br />Error!<br />", checkResult);
 	}
 
@@ -95,16 +111,85 @@ public class SitemapCheckServiceTest {
 		Mockito.when(singlePageCheckServiceMock.performCheck(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(null);
 		sitemapCheckThread.setSinglePageCheckService(singlePageCheckServiceMock);
 
-		String sitemapXml = FileUtils.readFileToString(new File("src/test/resources/sitemap.xml"));
-		Urlset urlset = sitemapCheckThread.readSitemap(sitemapXml);
+		SitemapReader sitemapReader = readSitemap("src/test/resources/sitemap.xml");
 		Check sitemapCheck = new Check();
 		sitemapCheck.setConditionType(CheckCondition.CONTAINS);
 		sitemapCheck.setCondition("</html>");
 		sitemapCheck.setCheckBrokenLinks(false);
 		sitemapCheck.setSocketTimeout(timeout);
 		sitemapCheck.setConnectionTimeout(timeout);
-		String checkResult = sitemapCheckThread.check(urlset, sitemapCheck, visitedPagesGet, visitedPagesHead);
+		String checkResult = sitemapCheckThread.check(SitemapCheckThread.urlSource(sitemapReader), sitemapCheck, visitedPagesGet, visitedPagesHead);
 		assertNull(checkResult);
 	}
 
+	@Test
+	public void testCheckSitemapIncremental() throws Exception {
+		Mockito.when(singlePageCheckServiceMock.performCheck(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(null);
+		sitemapCheckThread.setSinglePageCheckService(singlePageCheckServiceMock);
+		SitemapHistory history = new SitemapHistory();
+		sitemapCheckThread.setHistory(history, 10, 0);
+		Check sitemapCheck = new Check();
+		sitemapCheck.setConditionType(CheckCondition.CONTAINS);
+		sitemapCheck.setCondition("</html>");
+		sitemapCheckThread.check = sitemapCheck;
+
+		String sitemapXml = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\"><url><loc>http://www.example.com/a</loc><lastmod>2018-01-01</lastmod></url>"
+				+ "<url><loc>http://www.example.com/b</loc><lastmod>2018-01-01</lastmod></url></urlset>";
+		history.startRun("settings", 10, 0);
+		assertNull(sitemapCheckThread.check(urlSource(sitemapXml), sitemapCheck, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet()));
+		Mockito.verify(singlePageCheckServiceMock, Mockito.times(2)).performCheck(Mockito.any(), Mockito.any(), Mockito.any());
+
+		// nothing changed
+		history.startRun("settings", 10, 0);
+		assertNull(sitemapCheckThread.check(urlSource(sitemapXml), sitemapCheck, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet()));
+		Mockito.verify(singlePageCheckServiceMock, Mockito.times(2)).performCheck(Mockito.any(), Mockito.any(), Mockito.any());
+
+		// only the changed URL is checked
+		history.startRun("settings", 10, 0);
+		assertNull(sitemapCheckThread.check(urlSource(sitemapXml.replace("b</loc><lastmod>2018-01-01", "b</loc><lastmod>2018-01-02")), sitemapCheck, new MemoryVisitedUrlSet(),
+				new MemoryVisitedUrlSet()));
+		Mockito.verify(singlePageCheckServiceMock, Mockito.times(3)).performCheck(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+
+	@Test(timeout = 10000)
+	public void testSubmitErrorReleasesHost() throws Exception {
+		Mockito.when(singlePageCheckServiceMock.submitCheck(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenThrow(new RejectedExecutionException())
+				.thenReturn(CompletableFuture.completedFuture(null));
+		sitemapCheckThread.setSinglePageCheckService(singlePageCheckServiceMock);
+		sitemapCheckThread.setConcurrency(2);
+		sitemapCheckThread.setConcurrencyPerHost(1);
+		Check sitemapCheck = new Check();
+		sitemapCheck.setConditionType(CheckCondition.CONTAINS);
+		sitemapCheck.setCondition("</html>");
+		sitemapCheckThread.check = sitemapCheck;
+		String sitemapXml = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\"><url><loc>http://www.example.com/a</loc></url></urlset>";
+		try {
+			sitemapCheckThread.check(urlSource(sitemapXml), sitemapCheck, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet());
+			fail();
+		} catch (RejectedExecutionException e) {
+			// pool was shut down
+		}
+		// permit of the host was released
+		assertNull(sitemapCheckThread.check(urlSource(sitemapXml), sitemapCheck, new MemoryVisitedUrlSet(), new MemoryVisitedUrlSet()));
+	}
+
+	@Test
+	public void testHistoryRemoved() {
+		EventBus eventBus = new EventBus();
+		SitemapCheckService sitemapCheckService = new SitemapCheckService();
+		sitemapCheckService.setEventBus(eventBus);
+		sitemapCheckService.init();
+		SitemapHistory history = sitemapCheckService.getHistory(1);
+		sitemapCheckService.getHistory(2);
+		sitemapCheckService.getHistory(3);
+		assertSame(history, sitemapCheckService.getHistory(1));
+
+		eventBus.post(new CheckSavedEvent(1, 0));
+		assertNotSame(history, sitemapCheckService.getHistory(1));
+		eventBus.post(new CheckDeletedEvent(2));
+		assertEquals(2, sitemapCheckService.getHistoryCount());
+		eventBus.post(new CheckDeletedEvent(null));
+		assertEquals(0, sitemapCheckService.getHistoryCount());
+	}
+
 }
@@ -0,0 +1,100 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SitemapHistoryTest {
+
+	private static final String URL = "http://www.example.com/page";
+
+	@Test
+	public void testUnchangedUrlIsSkipped() {
+		SitemapHistory history = new SitemapHistory();
+		assertTrue(history.startRun("settings", 10, 0));
+		assertTrue(history.shouldCheck(URL, "2018-01-01"));
+		history.checked(URL, "2018-01-01", true);
+
+		assertFalse(history.startRun("settings", 10, 0));
+		assertFalse(history.shouldCheck(URL, "2018-01-01"));
+		assertTrue(history.shouldCheck(URL, "2018-01-02"));
+		assertTrue(history.shouldCheck("http://www.example.com/new", "2018-01-01"));
+		assertEquals(1, history.size());
+	}
+
+	@Test
+	public void testFailedUrlIsCheckedAgain() {
+		SitemapHistory history = new SitemapHistory();
+		history.startRun("settings", 10, 0);
+		history.checked(URL, null, false);
+		history.startRun("settings", 10, 0);
+		assertTrue(history.shouldCheck(URL, null));
+		history.checked(URL, null, true);
+		history.startRun("settings", 10, 0);
+		assertFalse(history.shouldCheck(URL, null));
+	}
+
+	@Test
+	public void testFullSweep() {
+		SitemapHistory history = new SitemapHistory();
+		history.startRun("settings", 3, 0);
+		history.checked(URL, "2018-01-01", true);
+		assertFalse(history.startRun("settings", 3, 0));
+		assertFalse(history.startRun("settings", 3, 0));
+		assertTrue(history.startRun("settings", 3, 0));
+		assertTrue(history.shouldCheck(URL, "2018-01-01"));
+		// URLs, which weren't in the sitemap during full sweep, are forgotten
+		assertEquals(0, history.size());
+	}
+
+	@Test
+	public void testSettingsChangeStartsFullSweep() {
+		SitemapHistory history = new SitemapHistory();
+		history.startRun("settings", 10, 0);
+		history.checked(URL, "2018-01-01", true);
+		assertTrue(history.startRun("new settings", 10, 0));
+		assertTrue(history.shouldCheck(URL, "2018-01-01"));
+	}
+
+	@Test
+	public void testSampleRotatesThroughAllUrls() {
+		SitemapHistory history = new SitemapHistory();
+		history.startRun("settings", 1000, 10);
+		for (int i = 0; i < 1000; i++) {
+			history.checked(URL + i, "2018-01-01", true);
+		}
+		Set<String> sampled = new HashSet<>();
+		for (int run = 0; run < 10; run++) {
+			history.startRun("settings", 1000, 10);
+			int count = 0;
+			for (int i = 0; i < 1000; i++) {
+				if (history.shouldCheck(URL + i, "2018-01-01")) {
+					assertTrue(sampled.add(URL + i));
+					count++;
+				}
+			}
+			assertTrue("sample size: " + count, count > 50 && count < 150);
+		}
+		assertEquals(1000, sampled.size());
+	}
+
+	@Test
+	public void testUnchangedSitemapIsSkipped() {
+		SitemapHistory history = new SitemapHistory();
+		history.startRun("settings", 10, 0);
+		history.sitemapChecked("http://www.example.com/sitemap1.xml", "2018-01-01", true);
+		history.sitemapChecked("http://www.example.com/sitemap2.xml", "2018-01-01", false);
+		history.sitemapChecked("http://www.example.com/sitemap3.xml", null, true);
+		history.startRun("settings", 10, 0);
+		assertFalse(history.shouldCheckSitemap("http://www.example.com/sitemap1.xml", "2018-01-01"));
+		assertTrue(history.shouldCheckSitemap("http://www.example.com/sitemap1.xml", "2018-01-02"));
+		assertTrue(history.shouldCheckSitemap("http://www.example.com/sitemap2.xml", "2018-01-01"));
+		assertTrue(history.shouldCheckSitemap("http://www.example.com/sitemap3.xml", null));
+	}
+
+}
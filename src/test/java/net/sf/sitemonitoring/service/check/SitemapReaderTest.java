@@ -0,0 +1,82 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class SitemapReaderTest {
+
+	@Test
+	public void testReadSitemap() throws Exception {
+		try (SitemapReader sitemapReader = new SitemapReader(new FileInputStream("src/test/resources/sitemap.xml"))) {
+			assertFalse(sitemapReader.isSitemapIndex());
+			assertEquals("http://www.sqlvids.com/", sitemapReader.nextLoc());
+			assertNull(sitemapReader.getLastmod());
+			assertEquals("http://www.sqlvids.com/latest.html", sitemapReader.nextLoc());
+			assertNull(sitemapReader.nextLoc());
+		}
+	}
+
+	@Test
+	public void testReadLastmod() throws Exception {
+		String sitemap = "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\" xmlns:image=\"http://www.google.com/schemas/sitemap-image/1.1\">"
+				+ "<url><loc>http://www.example.com/a</loc><image:image><image:loc>http://www.example.com/a.png</image:loc></image:image><lastmod>2018-01-01</lastmod></url>"
+				+ "<url><lastmod>2018-01-02</lastmod><loc>http://www.example.com/b</loc></url>" //
+				+ "<url><loc>http://www.example.com/c</loc></url></urlset>";
+		try (SitemapReader sitemapReader = new SitemapReader(new ByteArrayInputStream(sitemap.getBytes("UTF-8")))) {
+			assertEquals("http://www.example.com/a", sitemapReader.nextLoc());
+			assertEquals("2018-01-01", sitemapReader.getLastmod());
+			assertEquals("http://www.example.com/b", sitemapReader.nextLoc());
+			assertEquals("2018-01-02", sitemapReader.getLastmod());
+			assertEquals("http://www.example.com/c", sitemapReader.nextLoc());
+			assertNull(sitemapReader.getLastmod());
+			assertNull(sitemapReader.nextLoc());
+		}
+	}
+
+	@Test
+	public void testReadSitemapIndex() throws Exception {
+		try (SitemapReader sitemapReader = new SitemapReader(new FileInputStream("src/test/resources/sitemap-index.xml"))) {
+			assertTrue(sitemapReader.isSitemapIndex());
+			assertEquals("http://localhost:8081/local-sitemap.xml", sitemapReader.nextLoc());
+			assertEquals("2015-08-31T09:38:32.802+02:00", sitemapReader.getLastmod());
+			assertEquals("http://localhost:8081/sitemap.xml", sitemapReader.nextLoc());
+			assertEquals("2015-08-31T09:38:35.324+02:00", sitemapReader.getLastmod());
+			assertNull(sitemapReader.nextLoc());
+		}
+	}
+
+	@Test
+	public void testReadCompressedSitemap() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes)) {
+			gzipOutputStream.write(FileUtils.readFileToByteArray(new File("src/test/resources/sitemap.xml")));
+		}
+		try (SitemapReader sitemapReader = new SitemapReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+			assertFalse(sitemapReader.isSitemapIndex());
+			assertEquals("http://www.sqlvids.com/", sitemapReader.nextLoc());
+			assertEquals("http://www.sqlvids.com/latest.html", sitemapReader.nextLoc());
+			assertNull(sitemapReader.nextLoc());
+		}
+	}
+
+	@Test(expected = XMLStreamException.class)
+	public void testReadSitemapError() throws Exception {
+		try (SitemapReader sitemapReader = new SitemapReader(new FileInputStream("src/test/resources/sitemap.corrupt.xml"))) {
+			sitemapReader.nextLoc();
+		}
+	}
+
+}
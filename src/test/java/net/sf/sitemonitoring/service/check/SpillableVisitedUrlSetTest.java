@@ -0,0 +1,50 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class SpillableVisitedUrlSetTest {
+
+	@Test
+	public void testSpillToDisk() {
+		try (SpillableVisitedUrlSet visitedUrlSet = new SpillableVisitedUrlSet(100)) {
+			for (int i = 0; i < 100; i++) {
+				assertTrue(visitedUrlSet.add("http://localhost/page" + i));
+			}
+			assertFalse(visitedUrlSet.isSpilled());
+			// table is resized several times
+			for (int i = 100; i < 10000; i++) {
+				assertTrue(visitedUrlSet.add("http://localhost/page" + i));
+			}
+			assertTrue(visitedUrlSet.isSpilled());
+			for (int i = 0; i < 10000; i++) {
+				assertFalse(visitedUrlSet.add("http://localhost/page" + i));
+			}
+			assertEquals(10000, visitedUrlSet.size());
+		}
+	}
+
+	private static int temporaryFiles() {
+		String[] files = new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("sitemonitoring-visited"));
+		return files == null ? 0 : files.length;
+	}
+
+	@Test
+	public void testTemporaryFilesDeleted() {
+		int before = temporaryFiles();
+		try (SpillableVisitedUrlSet visitedUrlSet = new SpillableVisitedUrlSet(10)) {
+			for (int i = 0; i < 10000; i++) {
+				visitedUrlSet.add("http://localhost/page" + i);
+			}
+			// files of old tables are deleted when the table grows
+			assertEquals(before + 1, temporaryFiles());
+		}
+		assertEquals(before, temporaryFiles());
+	}
+
+}
@@ -0,0 +1,38 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class UrlCanonicalizerTest {
+
+	@Test
+	public void testCanonicalize() {
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x/a"));
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x/a#frag"));
+		assertEquals("http://x/a/", UrlCanonicalizer.canonicalize("HTTP://X/a/"));
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x/./a"));
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x/b/../a"));
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x/../a"));
+		assertEquals("http://x/", UrlCanonicalizer.canonicalize("http://x"));
+		assertEquals("http://x/a", UrlCanonicalizer.canonicalize("http://x:80/a?"));
+		assertEquals("https://x/a", UrlCanonicalizer.canonicalize("https://x:443/a"));
+		assertEquals("http://x:8080/a", UrlCanonicalizer.canonicalize("http://x:8080/a"));
+		assertEquals("https://x:80/a", UrlCanonicalizer.canonicalize("https://x:80/a"));
+		assertEquals("http://user@x/A%20b?q=%20", UrlCanonicalizer.canonicalize("http://user@X/A%20b?q=%20"));
+	}
+
+	@Test
+	public void testCanonicalizeQuery() {
+		assertEquals("http://x/a?b=2&a=1", UrlCanonicalizer.canonicalize("http://x/a?b=2&a=1#frag"));
+		assertEquals("http://x/a?a=1&b=2", UrlCanonicalizer.canonicalize("http://x/a?b=2&a=1#frag", true));
+	}
+
+	@Test
+	public void testCanonicalizeInvalid() {
+		assertEquals("mailto:x@x", UrlCanonicalizer.canonicalize("mailto:x@x"));
+		assertEquals("http://x/a b", UrlCanonicalizer.canonicalize("http://x/a b"));
+		assertEquals("/relative", UrlCanonicalizer.canonicalize("/relative"));
+	}
+
+}
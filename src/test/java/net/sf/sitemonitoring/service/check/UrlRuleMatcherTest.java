@@ -0,0 +1,61 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class UrlRuleMatcherTest {
+
+	/**
+	 * Original implementation of SinglePageCheckService.ignoreUrl()
+	 */
+	private static boolean ignoreUrl(String url, String excludedUrls) {
+		for (String rule : excludedUrls.split("\r\n")) {
+			rule = rule.trim();
+			if (!rule.isEmpty() && url.matches(rule.replaceAll("\\*", "\\.\\*"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testSameAsRegex() {
+		String[] rules = { "http://www.example.com/private/*", "*.pdf", "http://www.example.com/exact.html", "http://www.example.com/*/admin/*", "*", "http://www.example.com/page?id=*",
+				"http://www.example.com/(a|b)/*", " http://www.example.com/trimmed* ", "*/logout", "http://www.example.com/" };
+		String[] urls = { "http://www.example.com/private/a.html", "http://www.example.com/private", "http://www.example.com/doc.pdf", "http://www.example.com/docXpdf",
+				"http://www.example.com/pdf", "http://www.example.com/exact.html", "http://www.example.com/exact.htmlx", "http://wwwXexample.com/exact.html",
+				"http://www.example.com/x/admin/y", "http://www.example.com/page?id=1", "http://www.example.com/pageid=1", "http://www.example.com/a/b",
+				"http://www.example.com/c/b", "http://www.example.com/trimmed/a", "http://www.example.com/logout", "http://www.example.com/", "http://www.example.com",
+				"http://www.example.com/a\nb.pdf", "" };
+		for (int i = 0; i < rules.length; i++) {
+			for (int j = i; j < rules.length; j++) {
+				String excludedUrls = rules[i] + "\r\n" + rules[j];
+				UrlRuleMatcher urlRuleMatcher = new UrlRuleMatcher(excludedUrls);
+				for (String url : urls) {
+					assertEquals(excludedUrls + " " + url, ignoreUrl(url, excludedUrls), urlRuleMatcher.matches(url));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidRule() {
+		UrlRuleMatcher urlRuleMatcher = new UrlRuleMatcher("http://www.example.com/[a-*\r\nhttp://www.example.com/(a|b)/*\r\n*.pdf");
+		assertTrue(urlRuleMatcher.matches("http://www.example.com/a/page.html"));
+		assertTrue(urlRuleMatcher.matches("http://www.example.com/doc.pdf"));
+		assertFalse(urlRuleMatcher.matches("http://www.example.com/[a-x"));
+	}
+
+	@Test
+	public void testCache() {
+		assertNull(UrlRuleMatcher.of(null));
+		assertNull(UrlRuleMatcher.of(""));
+		assertSame(UrlRuleMatcher.of("*.pdf\r\n*.zip"), UrlRuleMatcher.of("*.pdf\r\n*.zip"));
+	}
+
+}
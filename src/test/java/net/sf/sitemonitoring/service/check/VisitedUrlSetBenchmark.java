@@ -0,0 +1,65 @@
+package net.sf.sitemonitoring.service.check;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Compares heap used by visited URLs: map of URIs (before
+ * {@link VisitedUrlSet}), {@link MemoryVisitedUrlSet} and
+ * {@link FingerprintVisitedUrlSet}. It isn't a unit test, run it with:
+ * {@code java -Xmx2g -cp ... VisitedUrlSetBenchmark [number of URLs]}
+ */
+public class VisitedUrlSetBenchmark {
+
+	private static String url(int i) {
+		return "http://www.example.com/category-" + (i % 100) + "/article-" + i + ".html";
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void measure(String name, int urls, IntFunction<Object> fill) {
+		long before = usedMemory();
+		long start = System.nanoTime();
+		Object visitedUrls = fill.apply(urls);
+		long millis = (System.nanoTime() - start) / 1000000;
+		long bytes = usedMemory() - before;
+		System.out.println(name + ": " + bytes / 1024 / 1024 + " MB, " + bytes / urls + " bytes per URL, " + millis + " ms");
+		// keep visitedUrls reachable until memory was measured
+		System.out.println("  " + visitedUrls.getClass().getSimpleName());
+	}
+
+	public static void main(String[] args) {
+		int urls = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		System.out.println("URLs: " + urls);
+		measure("HashMap<URI, Object>", urls, count -> {
+			Map<URI, Object> map = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				map.put(URI.create(url(i)), null);
+			}
+			return map;
+		});
+		measure("MemoryVisitedUrlSet", urls, count -> {
+			VisitedUrlSet visitedUrlSet = new MemoryVisitedUrlSet();
+			for (int i = 0; i < count; i++) {
+				visitedUrlSet.add(url(i));
+			}
+			return visitedUrlSet;
+		});
+		measure("FingerprintVisitedUrlSet", urls, count -> {
+			VisitedUrlSet visitedUrlSet = new FingerprintVisitedUrlSet();
+			for (int i = 0; i < count; i++) {
+				visitedUrlSet.add(url(i));
+			}
+			return visitedUrlSet;
+		});
+	}
+
+}
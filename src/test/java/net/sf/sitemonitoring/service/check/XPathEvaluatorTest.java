@@ -0,0 +1,59 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+public class XPathEvaluatorTest {
+
+	private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+			+ "<feed xmlns=\"http://www.w3.org/2005/Atom\" xmlns:x=\"urn:x\">\n" //
+			+ "  <title>Feed</title>\n" //
+			+ "  <entry><title>First <b>entry</b></title></entry>\n" //
+			+ "  <entry id=\"2\"><title><![CDATA[Second & last]]></title><x:price x:currency=\"EUR\">120</x:price></entry>\n" //
+			+ "</feed>";
+
+	private static String evaluateDom(String expression) throws Exception {
+		return XPathEvaluator.evaluate(new InputSource(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8))), expression);
+	}
+
+	private static String evaluateStreaming(String expression) throws Exception {
+		return XPathEvaluator.evaluateStreaming(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), expression);
+	}
+
+	@Test
+	public void testStreamingSameAsDom() throws Exception {
+		String[] expressions = { "/feed/title", "/feed/entry/title", "/feed/entry", "/feed/entry/@id", "/feed/entry/price", "/feed/entry/price/@currency", "/feed/missing",
+				"/title", "/feed/entry/title/b" };
+		for (String expression : expressions) {
+			assertTrue(expression, XPathEvaluator.isSimplePath(expression));
+			assertEquals(expression, evaluateDom(expression), evaluateStreaming(expression));
+		}
+		assertEquals("First entry", evaluateStreaming("/feed/entry/title"));
+		assertEquals("2", evaluateStreaming("/feed/entry/@id"));
+	}
+
+	@Test
+	public void testIsSimplePath() {
+		assertFalse(XPathEvaluator.isSimplePath("//title"));
+		assertFalse(XPathEvaluator.isSimplePath("/feed/entry[2]/title"));
+		assertFalse(XPathEvaluator.isSimplePath("count(/feed/entry)"));
+		assertFalse(XPathEvaluator.isSimplePath("/feed/entry/title/text()"));
+		assertFalse(XPathEvaluator.isSimplePath("/feed/@id/title"));
+		assertFalse(XPathEvaluator.isSimplePath("/feed/entry/x:price"));
+	}
+
+	@Test
+	public void testCompiledExpressionIsReused() throws Exception {
+		assertSame(XPathEvaluator.compile("count(/feed/entry)"), XPathEvaluator.compile("count(/feed/entry)"));
+		assertEquals("2", evaluateDom("count(/feed/entry)"));
+	}
+
+}
@@ -0,0 +1,54 @@
+package net.sf.sitemonitoring.service.check;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import javax.xml.validation.Schema;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+public class XsdSchemaCacheTest {
+
+	private static final String XSD = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"><xs:element name=\"%s\" type=\"xs:string\" /></xs:schema>";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testSchemaIsCompiledAgainWhenFileChanges() throws Exception {
+		File file = temporaryFolder.newFile("test.xsd");
+		FileUtils.writeStringToFile(file, String.format(XSD, "a"), "UTF-8");
+		Schema schema = XsdSchemaCache.getSchema(file.getPath());
+		assertSame(schema, XsdSchemaCache.getSchema(file.getPath()));
+
+		FileUtils.writeStringToFile(file, String.format(XSD, "abc"), "UTF-8");
+		Schema changedSchema = XsdSchemaCache.getSchema(file.getPath());
+		assertNotSame(schema, changedSchema);
+		assertSame(changedSchema, XsdSchemaCache.getSchema(file.getPath()));
+
+		// same size, different time
+		FileUtils.writeStringToFile(file, String.format(XSD, "xyz"), "UTF-8");
+		file.setLastModified(file.lastModified() - 10000);
+		assertNotSame(changedSchema, XsdSchemaCache.getSchema(file.getPath()));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testMissingFile() throws Exception {
+		XsdSchemaCache.getSchema(new File(temporaryFolder.getRoot(), "missing.xsd").getPath());
+	}
+
+	@Test(expected = SAXException.class)
+	public void testInvalidSchema() throws Exception {
+		File file = temporaryFolder.newFile("invalid.xsd");
+		FileUtils.writeStringToFile(file, "<xs:schema", "UTF-8");
+		XsdSchemaCache.getSchema(file.getPath());
+	}
+
+}